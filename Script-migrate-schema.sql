@@ -0,0 +1,29 @@
+-- Migration of an existing MySQL database to the current entities, to run before starting with
+-- spring.profiles.active=prod (spring.jpa.hibernate.ddl-auto=validate refuses a missing table or column).
+-- With opaque.app.shards.urls, run it on every shard.
+
+-- Second factor (TOTP): active secret, and the secret waiting for its first code (/totp/activate)
+ALTER TABLE internaut ADD COLUMN totp_secret VARCHAR(64) NULL;
+ALTER TABLE internaut ADD COLUMN totp_pending VARCHAR(64) NULL;
+
+-- Transactional outbox, relayed by OutboxRelay; next_attempt_at = 9223372036854775807 marks an event set aside
+CREATE TABLE outbox_event (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  aggregate_key VARCHAR(20) NOT NULL,
+  type VARCHAR(40) NOT NULL,
+  payload VARCHAR(2000) NOT NULL,
+  created_at BIGINT NOT NULL,
+  attempts INT NOT NULL,
+  next_attempt_at BIGINT NOT NULL,
+  INDEX outbox_event_due (next_attempt_at, id),
+  INDEX outbox_event_key (aggregate_key, id)
+);
+
+-- Role of the gateways allowed to call /api/gateway/introspect
+INSERT INTO role(name) SELECT 'ROLE_GATEWAY' FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM role WHERE name = 'ROLE_GATEWAY');
+
+-- Sharded deployments only (opaque.app.shards.urls), on shard 0: global uniqueness of emails and usernames
+CREATE TABLE IF NOT EXISTS internaut_email (
+  email VARCHAR(50) NOT NULL PRIMARY KEY,
+  name VARCHAR(20) NOT NULL UNIQUE
+);
@@ -0,0 +1,83 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import com.diefthyntis.TwoautJwtApi.auth.Centrale;
+import com.diefthyntis.TwoautJwtApi.auth.InputCredential;
+import com.diefthyntis.TwoautJwtApi.auth.InternautPage;
+import com.diefthyntis.TwoautJwtApi.auth.IntrospectionRequest;
+import com.diefthyntis.TwoautJwtApi.auth.IntrospectionResponse;
+import com.diefthyntis.TwoautJwtApi.auth.LoadShedder;
+import com.diefthyntis.TwoautJwtApi.auth.MfaChallenge;
+import com.diefthyntis.TwoautJwtApi.auth.MfaCredential;
+import com.diefthyntis.TwoautJwtApi.auth.NewCredential;
+import com.diefthyntis.TwoautJwtApi.auth.ReturnedResponse;
+import com.diefthyntis.TwoautJwtApi.auth.ReturnedToken;
+import com.diefthyntis.TwoautJwtApi.auth.RoleChange;
+import com.diefthyntis.TwoautJwtApi.auth.TokenIntrospection;
+import com.diefthyntis.TwoautJwtApi.auth.TotpCode;
+import com.diefthyntis.TwoautJwtApi.auth.TotpEnrollment;
+import com.diefthyntis.TwoautJwtApi.auth.Watchdog;
+import com.diefthyntis.TwoautJwtApi.model.Internaut;
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+import com.diefthyntis.TwoautJwtApi.model.Role;
+import com.diefthyntis.TwoautJwtApi.repository.InternautSummary;
+import com.diefthyntis.TwoautJwtApi.service.RoleChangeReport;
+
+/*
+ Indications (hints) pour la compilation en image native GraalVM (mvn -Pnative native:compile).
+
+ Spring AOT découvre seul la plupart des beans, mais pas ce qui est chargé par réflexion
+ en dehors de Spring :
+    jjwt-api instancie jjwt-impl par son nom de classe (Classes.newInstance),
+    jjwt-impl trouve son sérialiseur JSON (jjwt-jackson) par ServiceLoader,
+    Hibernate accède aux champs des entités Internaut, Role et OutboxEvent,
+    Watchdog et LoadShedder, construits par new dans Centrale, reçoivent leurs dépendances
+    par champs @Autowired,
+    Jackson (dé)sérialise les DTO des contrôleurs.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+	private static final String[] JJWT_REFLECTIVE_TYPES = {
+			"io.jsonwebtoken.impl.DefaultJwtBuilder",
+			"io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+			"io.jsonwebtoken.impl.DefaultJwtParser",
+			"io.jsonwebtoken.impl.DefaultClaims",
+			"io.jsonwebtoken.impl.DefaultHeader",
+			"io.jsonwebtoken.impl.DefaultJwsHeader",
+			"io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+			"io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+			"io.jsonwebtoken.jackson.io.JacksonSerializer",
+			"io.jsonwebtoken.jackson.io.JacksonDeserializer" };
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		for (String type : JJWT_REFLECTIVE_TYPES) {
+			hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+					MemberCategory.INVOKE_PUBLIC_METHODS);
+		}
+		hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.io.Serializer");
+		hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.io.Deserializer");
+		hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.CompressionCodec");
+
+		hints.reflection().registerType(Internaut.class, MemberCategory.values());
+		hints.reflection().registerType(Role.class, MemberCategory.values());
+		hints.reflection().registerType(OutboxEvent.class, MemberCategory.values());
+
+		hints.reflection().registerType(Centrale.class, MemberCategory.DECLARED_FIELDS,
+				MemberCategory.INVOKE_DECLARED_METHODS);
+		hints.reflection().registerType(Watchdog.class, MemberCategory.DECLARED_FIELDS);
+		hints.reflection().registerType(LoadShedder.class, MemberCategory.DECLARED_FIELDS,
+				MemberCategory.INVOKE_DECLARED_METHODS);
+
+		new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), InputCredential.class,
+				NewCredential.class, ReturnedToken.class, ReturnedResponse.class, MfaCredential.class,
+				MfaChallenge.class, TotpEnrollment.class, InternautPage.class, InternautSummary.class,
+				RoleChange.class, RoleChangeReport.class, IntrospectionRequest.class, IntrospectionResponse.class,
+				TokenIntrospection.class, TotpCode.class);
+	}
+}
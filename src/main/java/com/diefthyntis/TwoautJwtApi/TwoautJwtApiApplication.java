@@ -2,8 +2,10 @@ package com.diefthyntis.TwoautJwtApi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeHints.class)
 public class TwoautJwtApiApplication {
 
 	public static void main(String[] args) {
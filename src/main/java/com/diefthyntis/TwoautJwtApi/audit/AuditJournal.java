@@ -0,0 +1,284 @@
+package com.diefthyntis.TwoautJwtApi.audit;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ ================================================================================
+ Journal d'audit des authentifications (opaque.app.audit.directory) : succès et échecs de
+ /signin, échecs du second facteur, inscriptions, refus de ClosedDoor.
+
+ Côté requête, record ne fait qu'une réservation par CAS dans un anneau préalloué (plusieurs
+ producteurs, un consommateur), quelques écritures dans des tableaux et une publication
+ ordonnée : ni verrou, ni allocation, ni entrée/sortie. Si l'anneau est plein (disque bloqué),
+ l'enregistrement est abandonné et compté (getDropped) plutôt que de ralentir la requête.
+
+ Un thread d'écriture vide l'anneau dans des segments projetés en mémoire. Sans rien à écrire,
+ il dort de plus en plus longtemps (de MIN_IDLE_PARK_NANOS à MAX_IDLE_PARK_NANOS, doublé à chaque
+ passage à vide) : un service inactif ne le réveille qu'une centaine de fois par seconde.
+    audit-<création en ms>-<n°>.seg, en-tête de HEADER_BYTES octets (MAGIC, RECORD_BYTES),
+    puis des enregistrements de RECORD_BYTES octets (petit-boutiste) :
+        0  horodatage (ms)    8  id utilisateur (0 si inconnu)
+        16 type (AuditType)   17 longueur du sujet   18 sujet (nom ou chemin, UTF-8 tronqué entre deux caractères)
+    la fin non écrite d'un segment est à zéro (horodatage nul) ;
+    un segment plein est forcé sur disque et remplacé par un nouveau ;
+    le segment courant est forcé toutes les forceIntervalMs ;
+    les segments plus vieux que retentionDays sont supprimés à chaque changement de segment.
+ Lecture : AuditReader.
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.audit", name = "directory")
+public class AuditJournal {
+
+	private static final Logger logger = LoggerFactory.getLogger(AuditJournal.class);
+
+	static final long MAGIC = 0x3154494455414154L; // "TAAUDIT1"
+
+	static final int HEADER_BYTES = 16;
+
+	static final int RECORD_BYTES = 64;
+
+	static final int MAX_SUBJECT = RECORD_BYTES - 18;
+
+	private static final long MIN_IDLE_PARK_NANOS = 50_000;
+
+	private static final long MAX_IDLE_PARK_NANOS = 10_000_000;
+
+	private final Path directory;
+
+	private final long segmentBytes;
+
+	private final long retentionMs;
+
+	private final long forceIntervalNanos;
+
+	/* anneau : champs par emplacement, published[i] = séquence publiée dans l'emplacement i */
+	private final int mask;
+
+	private final long[] timestamps;
+
+	private final long[] userIds;
+
+	private final byte[] types;
+
+	private final String[] subjects;
+
+	private final AtomicLongArray published;
+
+	private final AtomicLong head = new AtomicLong();
+
+	private volatile long tail;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running;
+
+	private Thread writer;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer segment;
+
+	private int segmentIndex;
+
+	public AuditJournal(@Value("${opaque.app.audit.directory}") String directory,
+			@Value("${opaque.app.audit.segmentBytes:67108864}") long segmentBytes,
+			@Value("${opaque.app.audit.ringCapacity:65536}") int ringCapacity,
+			@Value("${opaque.app.audit.retentionDays:90}") int retentionDays,
+			@Value("${opaque.app.audit.forceIntervalMs:1000}") long forceIntervalMs) {
+		this(Path.of(directory), segmentBytes, ringCapacity, retentionDays * 86_400_000L, forceIntervalMs);
+	}
+
+	AuditJournal(Path directory, long segmentBytes, int ringCapacity, long retentionMs, long forceIntervalMs) {
+		this.directory = directory;
+		long records = Math.max(1, (Math.min(segmentBytes, Integer.MAX_VALUE) - HEADER_BYTES) / RECORD_BYTES);
+		this.segmentBytes = HEADER_BYTES + records * RECORD_BYTES;
+		this.retentionMs = retentionMs;
+		this.forceIntervalNanos = forceIntervalMs * 1_000_000;
+		int capacity = Integer.highestOneBit(Math.max(2, ringCapacity) * 2 - 1);
+		this.mask = capacity - 1;
+		this.timestamps = new long[capacity];
+		this.userIds = new long[capacity];
+		this.types = new byte[capacity];
+		this.subjects = new String[capacity];
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			published.set(i, -1);
+		}
+	}
+
+	@PostConstruct
+	void start() throws IOException {
+		Files.createDirectories(directory);
+		purge();
+		roll();
+		running = true;
+		writer = new Thread(this::drainLoop, "audit-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@PreDestroy
+	void stop() throws IOException {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(5_000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writer.isAlive()) {
+			/* le thread d'écriture utilise encore le segment : ni force ni fermeture sous ses pieds */
+			logger.warn("Audit journal writer did not stop, segment left open");
+			return;
+		}
+		segment.force();
+		channel.close();
+	}
+
+	/*
+	 Ajoute un enregistrement ; userId vaut 0 s'il n'est pas connu, subject est un nom d'utilisateur
+	 ou un chemin. Renvoie false si l'anneau était plein.
+	 */
+	public boolean record(AuditType type, long userId, String subject) {
+		long sequence;
+		do {
+			sequence = head.get();
+			if (sequence - tail > mask) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		} while (!head.compareAndSet(sequence, sequence + 1));
+
+		int slot = (int) sequence & mask;
+		timestamps[slot] = System.currentTimeMillis();
+		userIds[slot] = userId;
+		types[slot] = (byte) type.ordinal();
+		subjects[slot] = subject;
+		published.lazySet(slot, sequence);
+		return true;
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	private void drainLoop() {
+		long lastForce = System.nanoTime();
+		long idlePark = MIN_IDLE_PARK_NANOS;
+		while (true) {
+			boolean stopping = !running;
+			int drained = 0;
+			try {
+				drained = drain();
+				if (System.nanoTime() - lastForce > forceIntervalNanos) {
+					segment.force();
+					lastForce = System.nanoTime();
+				}
+			} catch (IOException | RuntimeException e) {
+				logger.error("Audit journal write failed: {}", e.getMessage());
+			}
+			if (stopping) {
+				return;
+			}
+			if (drained == 0) {
+				LockSupport.parkNanos(idlePark);
+				idlePark = Math.min(MAX_IDLE_PARK_NANOS, idlePark * 2);
+			} else {
+				idlePark = MIN_IDLE_PARK_NANOS;
+			}
+		}
+	}
+
+	/*
+	 Copie dans le segment les enregistrements publiés, dans l'ordre des séquences.
+	 */
+	int drain() throws IOException {
+		int drained = 0;
+		long next = tail;
+		while (true) {
+			int slot = (int) next & mask;
+			if (published.get(slot) != next) {
+				break;
+			}
+			if (!segment.hasRemaining()) {
+				roll();
+			}
+			int offset = segment.position();
+			segment.putLong(offset + 8, userIds[slot]);
+			segment.put(offset + 16, types[slot]);
+			int length = putSubject(offset + 18, subjects[slot]);
+			segment.put(offset + 17, (byte) length);
+			/* horodatage en dernier : un lecteur concurrent s'arrête sur un enregistrement incomplet */
+			segment.putLong(offset, timestamps[slot]);
+			segment.position(offset + RECORD_BYTES);
+			subjects[slot] = null;
+			next++;
+			tail = next;
+			drained++;
+		}
+		return drained;
+	}
+
+	private int putSubject(int offset, String subject) {
+		if (subject == null) {
+			return 0;
+		}
+		byte[] bytes = subject.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_SUBJECT);
+		if (length < bytes.length) {
+			/* coupe avant un octet de continuation (10xxxxxx) : jamais au milieu d'un caractère */
+			while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+				length--;
+			}
+		}
+		segment.put(offset, bytes, 0, length);
+		return length;
+	}
+
+	private void roll() throws IOException {
+		if (segment != null) {
+			segment.force();
+			channel.close();
+			purge();
+		}
+		Path file = directory.resolve(String.format("audit-%013d-%04d.seg", System.currentTimeMillis(), segmentIndex++));
+		channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+		segment.putLong(0, MAGIC);
+		segment.putInt(8, RECORD_BYTES);
+		segment.position(HEADER_BYTES);
+	}
+
+	private void purge() throws IOException {
+		long limit = System.currentTimeMillis() - retentionMs;
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "audit-*.seg")) {
+			for (Path old : segments) {
+				if (Files.getLastModifiedTime(old).toMillis() < limit) {
+					Files.deleteIfExists(old);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.diefthyntis.TwoautJwtApi.audit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/*
+ ================================================================================
+ Lecture du journal d'audit (segments écrits par AuditJournal), y compris pendant que
+ l'application écrit encore dans le dernier segment.
+
+    java -cp TwoautJwtApi.jar -Dloader.main=com.diefthyntis.TwoautJwtApi.audit.AuditReader \
+         org.springframework.boot.loader.launch.PropertiesLauncher <répertoire|segment>... \
+         [--from 2026-10-01T00:00:00Z] [--to 2026-10-02T00:00:00Z] [--type SIGNIN_FAILURE] [--subject alice]
+
+ Une ligne par enregistrement retenu : horodatage ISO, type, id utilisateur, sujet.
+ Les segments d'un répertoire sont lus dans l'ordre de leur nom, donc de leur création.
+ ================================================================================
+ */
+public final class AuditReader {
+
+	private AuditReader() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<Path> inputs = new ArrayList<>();
+		long from = Long.MIN_VALUE;
+		long to = Long.MAX_VALUE;
+		AuditType type = null;
+		String subject = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--from" -> from = Instant.parse(args[++i]).toEpochMilli();
+			case "--to" -> to = Instant.parse(args[++i]).toEpochMilli();
+			case "--type" -> type = AuditType.valueOf(args[++i]);
+			case "--subject" -> subject = args[++i];
+			default -> inputs.add(Path.of(args[i]));
+			}
+		}
+		if (inputs.isEmpty()) {
+			System.err.println("Usage: AuditReader <directory|segment>... [--from ISO] [--to ISO] [--type TYPE] [--subject NAME]");
+			System.exit(2);
+		}
+
+		long fromMs = from;
+		long toMs = to;
+		AuditType wantedType = type;
+		String wantedSubject = subject;
+		PrintStream out = System.out;
+		for (Path segment : segments(inputs)) {
+			read(segment, entry -> {
+				if (entry.timestamp >= fromMs && entry.timestamp < toMs && (wantedType == null || entry.type == wantedType)
+						&& (wantedSubject == null || wantedSubject.equals(entry.subject))) {
+					out.println(Instant.ofEpochMilli(entry.timestamp) + " " + entry.type + " " + entry.userId + " "
+							+ entry.subject);
+				}
+			});
+		}
+	}
+
+	static List<Path> segments(List<Path> inputs) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		for (Path input : inputs) {
+			if (Files.isDirectory(input)) {
+				try (Stream<Path> files = Files.list(input)) {
+					files.filter(file -> file.getFileName().toString().matches("audit-.*\\.seg")).sorted()
+							.forEach(segments::add);
+				}
+			} else {
+				segments.add(input);
+			}
+		}
+		return segments;
+	}
+
+	/*
+	 Décode un segment jusqu'au premier emplacement non écrit.
+	 */
+	public static void read(Path segment, Consumer<Entry> sink) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.limit() < AuditJournal.HEADER_BYTES || buffer.getLong(0) != AuditJournal.MAGIC) {
+				throw new IOException("Not an audit segment: " + segment);
+			}
+			int recordBytes = buffer.getInt(8);
+			byte[] subject = new byte[recordBytes - 18];
+			for (int offset = AuditJournal.HEADER_BYTES; offset + recordBytes <= buffer.limit(); offset += recordBytes) {
+				long timestamp = buffer.getLong(offset);
+				if (timestamp == 0) {
+					break;
+				}
+				int length = Math.min(buffer.get(offset + 17) & 0xff, subject.length);
+				buffer.get(offset + 18, subject, 0, length);
+				sink.accept(new Entry(timestamp, buffer.getLong(offset + 8), AuditType.of(buffer.get(offset + 16)),
+						new String(subject, 0, length, StandardCharsets.UTF_8)));
+			}
+		}
+	}
+
+	public static final class Entry {
+		public final long timestamp;
+		public final long userId;
+		public final AuditType type;
+		public final String subject;
+
+		Entry(long timestamp, long userId, AuditType type, String subject) {
+			this.timestamp = timestamp;
+			this.userId = userId;
+			this.type = type;
+			this.subject = subject;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.diefthyntis.TwoautJwtApi.audit;
+
+/*
+ Nature d'un enregistrement du journal d'audit. Le code (ordinal) est écrit sur disque :
+ ne jamais réordonner ni supprimer une valeur, seulement en ajouter à la fin.
+ */
+public enum AuditType {
+	SIGNIN_SUCCESS,
+	SIGNIN_FAILURE,
+	MFA_FAILURE,
+	SIGNUP,
+	UNAUTHORIZED;
+
+	private static final AuditType[] CODES = values();
+
+	static AuditType of(int code) {
+		return code >= 0 && code < CODES.length ? CODES[code] : null;
+	}
+}
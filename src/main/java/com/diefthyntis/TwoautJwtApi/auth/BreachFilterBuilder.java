@@ -0,0 +1,124 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ ================================================================================
+ Construction hors ligne du fichier lu par BreachedPasswords.
+
+    BreachFilterBuilder <liste-sha1.txt> <sortie.bloom> [taux de faux positifs, 0.001 par défaut]
+
+ Chaque ligne commence par les 40 caractères hexadécimaux d'un SHA-1 (la suite, ":occurrences"
+ par exemple, est ignorée ; les lignes invalides sont comptées et sautées). Une première lecture
+ compte les empreintes pour dimensionner le filtre (bitCount = -n ln p / ln²2, hashCount = bitCount / n ln 2),
+ la seconde positionne les bits directement dans le fichier projeté en mémoire, par tranches :
+ le tas reste petit quelle que soit la taille de la liste.
+ ================================================================================
+ */
+public final class BreachFilterBuilder {
+
+	private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+	private BreachFilterBuilder() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: BreachFilterBuilder <sha1-list.txt> <output.bloom> [false-positive-rate]");
+			System.exit(2);
+		}
+		double rate = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_FALSE_POSITIVE_RATE;
+		long entries = build(Path.of(args[0]), Path.of(args[1]), rate, BreachedPasswords.CHUNK_SHIFT);
+		System.out.println(entries + " hashes written to " + args[1]);
+	}
+
+	static long build(Path input, Path output, double rate, int chunkShift) throws IOException {
+		if (!(rate > 0 && rate < 1)) {
+			throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + rate);
+		}
+
+		long entries = 0;
+		long skipped = 0;
+		try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (isHash(line)) {
+					entries++;
+				} else if (!line.isBlank()) {
+					skipped++;
+				}
+			}
+		}
+		if (skipped > 0) {
+			System.err.println(skipped + " invalid lines skipped");
+		}
+
+		long n = Math.max(1, entries);
+		long bitCount = (long) Math.ceil(-n * Math.log(rate) / (Math.log(2) * Math.log(2)));
+		bitCount = (bitCount + 63) & ~63L;
+		int hashCount = (int) Math.max(1, Math.min(30, Math.round((double) bitCount / n * Math.log(2))));
+		long bytes = bitCount >>> 3;
+		long chunkMask = (1L << chunkShift) - 1;
+
+		Files.deleteIfExists(output);
+		try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((bytes + chunkMask) >>> chunkShift)];
+			for (int i = 0; i < chunks.length; i++) {
+				long offset = (long) i << chunkShift;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, BreachedPasswords.HEADER_BYTES + offset,
+						Math.min(1L << chunkShift, bytes - offset));
+			}
+
+			try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (!isHash(line)) {
+						continue;
+					}
+					long h1 = Long.parseUnsignedLong(line, 0, 16, 16);
+					long h2 = Long.parseUnsignedLong(line, 16, 32, 16);
+					for (int i = 0; i < hashCount; i++) {
+						long bit = BreachedPasswords.probe(h1, h2, i, bitCount);
+						long offset = bit >>> 3;
+						MappedByteBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+						int index = (int) (offset & chunkMask);
+						chunk.put(index, (byte) (chunk.get(index) | (1 << (bit & 7))));
+					}
+				}
+			}
+			for (MappedByteBuffer chunk : chunks) {
+				chunk.force();
+			}
+
+			/* l'en-tête est écrit en dernier : un fichier interrompu n'est jamais accepté */
+			ByteBuffer header = ByteBuffer.allocate(BreachedPasswords.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(BreachedPasswords.MAGIC).putLong(bitCount).putLong(entries).putInt(hashCount).putInt(0);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		}
+		return entries;
+	}
+
+	private static boolean isHash(String line) {
+		if (line.length() < 40 || (line.length() > 40 && line.charAt(40) != ':')) {
+			return false;
+		}
+		for (int i = 0; i < 40; i++) {
+			if (Character.digit(line.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,137 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ ================================================================================
+ Filtre de Bloom des mots de passe compromis, consulté par /signup.
+
+ Le fichier est produit hors ligne par BreachFilterBuilder à partir d'une liste d'empreintes SHA-1
+ (format "HEX:occurrences" des listes publiques, ou un HEX par ligne) :
+    java -cp TwoautJwtApi.jar -Dloader.main=com.diefthyntis.TwoautJwtApi.auth.BreachFilterBuilder \
+         org.springframework.boot.loader.launch.PropertiesLauncher pwned-passwords-sha1.txt breached.bloom
+ puis activé par opaque.app.breach.file=breached.bloom.
+
+ Le fichier est projeté en mémoire (FileChannel.map) par tranches de 1 Gio, en lecture seule :
+ rien n'est copié dans le tas, le démarrage ne lit que l'en-tête, et seules les pages touchées
+ par les tests sont chargées par le système. Un test coûte un SHA-1 et hashCount lectures d'octet
+ (double hachage : position i = h1 + i * h2 modulo bitCount, h1 et h2 étant les 16 premiers
+ octets de l'empreinte). Aucun faux négatif ; les faux positifs suivent le taux choisi à la
+ construction.
+
+ Format : en-tête de HEADER_BYTES octets (petit-boutiste)
+    magic (8) | bitCount (8) | entries (8) | hashCount (4) | réservé (4)
+ suivi des bitCount / 8 octets du tableau de bits (bit b = octet b >>> 3, masque 1 << (b & 7)).
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.breach", name = "file")
+public class BreachedPasswords {
+
+	static final long MAGIC = 0x314D4F4F4C425454L; // "TTBLOOM1"
+
+	static final int HEADER_BYTES = 32;
+
+	static final int CHUNK_SHIFT = 30;
+
+	private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	});
+
+	private final MappedByteBuffer[] chunks;
+
+	private final int chunkShift;
+
+	private final long chunkMask;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	private final long entries;
+
+	public BreachedPasswords(@Value("${opaque.app.breach.file}") String file) throws IOException {
+		this(Path.of(file), CHUNK_SHIFT);
+	}
+
+	BreachedPasswords(Path file, int chunkShift) throws IOException {
+		this.chunkShift = chunkShift;
+		this.chunkMask = (1L << chunkShift) - 1;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			int read;
+			do {
+				read = channel.read(header, header.position());
+			} while (read > 0 && header.hasRemaining());
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+				throw new IllegalStateException("Not a breached-password filter: " + file);
+			}
+			bitCount = header.getLong();
+			entries = header.getLong();
+			hashCount = header.getInt();
+			long bytes = bitCount >>> 3;
+			if (bitCount <= 0 || (bitCount & 7) != 0 || hashCount <= 0 || channel.size() != HEADER_BYTES + bytes) {
+				throw new IllegalStateException("Corrupted breached-password filter: " + file);
+			}
+
+			/* la fermeture du canal ne libère pas les projections */
+			chunks = new MappedByteBuffer[(int) ((bytes + chunkMask) >>> chunkShift)];
+			for (int i = 0; i < chunks.length; i++) {
+				long offset = (long) i << chunkShift;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset,
+						Math.min(1L << chunkShift, bytes - offset));
+			}
+		}
+	}
+
+	public boolean isBreached(String password) {
+		MessageDigest sha1 = SHA1.get();
+		byte[] digest = sha1.digest(password.getBytes(StandardCharsets.UTF_8));
+		return mightContain(longAt(digest, 0), longAt(digest, 8));
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	boolean mightContain(long h1, long h2) {
+		for (int i = 0; i < hashCount; i++) {
+			long bit = probe(h1, h2, i, bitCount);
+			long offset = bit >>> 3;
+			if ((chunks[(int) (offset >>> chunkShift)].get((int) (offset & chunkMask)) & (1 << (bit & 7))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static long probe(long h1, long h2, int i, long bitCount) {
+		return Long.remainderUnsigned(h1 + i * (h2 | 1), bitCount);
+	}
+
+	static long longAt(byte[] bytes, int from) {
+		long value = 0;
+		for (int i = from; i < from + 8; i++) {
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+		return value;
+	}
+}
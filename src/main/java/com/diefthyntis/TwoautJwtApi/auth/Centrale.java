@@ -22,9 +22,12 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 
 import com.diefthyntis.TwoautJwtApi.service.UserService;
 
+import io.micrometer.observation.ObservationRegistry;
+
 
 
 /*
@@ -79,6 +82,13 @@ public class Centrale {
 	@Autowired
 	private ClosedDoor closedDoor;
 
+	/*
+	 * observationRegistry : Registre Micrometer Observation (actuator) : les temps
+	 * de hachage des mots de passe y sont publiés en métriques et en spans.
+	 */
+	@Autowired
+	private ObservationRegistry observationRegistry;
+
 	/*
 	 * authenticationJwtTokenFilter : Crée un filtre de token JWT personnalisé
 	 * (AuthTokenFilter). Ce filtre est utilisé pour intercepter les requêtes HTTP
@@ -89,17 +99,28 @@ public class Centrale {
 		return new Watchdog();
 	}
 
+	/*
+	 * loadShedder : Crée le filtre de délestage (LoadShedder) qui limite, de façon
+	 * adaptative, le nombre de requêtes traitées en parallèle et répond 503 au-delà.
+	 */
+	@Bean
+	public LoadShedder loadShedder() {
+		return new LoadShedder();
+	}
+
     /*
      * authenticationProvider : Crée un fournisseur d'authentification
      * (DaoAuthenticationProvider) qui utilise le userDetailsService pour charger
      * les détails de l'utilisateur et le passwordEncoder pour encoder et vérifier
      * les mots de passe.
+     * Le chargement passe par loadForPasswordCheck : un compte verrouillé y est traité
+     * comme un nom inconnu, avec la même comparaison BCrypt factice.
      */
     @Bean
     DaoAuthenticationProvider authenticationProvider() {
 		DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
 
-		authProvider.setUserDetailsService(userService);
+		authProvider.setUserDetailsService(userService::loadForPasswordCheck);
 		authProvider.setPasswordEncoder(passwordEncoder());
 
 		return authProvider;
@@ -117,11 +138,13 @@ public class Centrale {
 
 	/*
 	 * passwordEncoder : Crée un encodeur de mot de passe (BCryptPasswordEncoder)
-	 * qui est utilisé pour hacher les mots de passe des utilisateurs.
+	 * qui est utilisé pour hacher les mots de passe des utilisateurs. Il est
+	 * chronométré (timer opaque.password) pour distinguer le coût du hachage de
+	 * l'attente de connexions à la base.
 	 */
 	@Bean
 	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		return new MeteredPasswordEncoder(new BCryptPasswordEncoder(), observationRegistry);
 	}
 
     /*
@@ -141,7 +164,11 @@ public class Centrale {
      * authorizeHttpRequests(auth -> ...) :
      * 
      * Permet l'accès à toutes les requêtes correspondant aux chemins /api/auth/**
-     * et /api/test/** sans authentification. Exige une authentification pour toutes
+     * et /api/test/** sans authentification, ainsi que /error pour que le statut
+     * d'origine (404, 400...) ne soit pas remplacé par un 401 lors du dispatch
+     * d'erreur (le contexte de sécurité n'y est pas conservé). Les sondes
+     * /actuator/health sont publiques, les autres endpoints actuator (métriques)
+     * sont réservés à ROLE_ADMIN. Exige une authentification pour toutes
      * les autres requêtes (anyRequest().authenticated()).
      * 
      * authenticationProvider(authenticationProvider()) : Intègre le fournisseur
@@ -153,6 +180,10 @@ public class Centrale {
      * mot de passe standard (UsernamePasswordAuthenticationFilter). Cela permet au
      * filtre JWT de traiter les requêtes avant le traitement d'authentification
      * standard.
+     * 
+     * addFilterBefore(loadShedder(), SecurityContextHolderFilter.class) : Place le
+     * délestage en tête de chaîne : une requête refusée en surcharge ne coûte ni
+     * parsing de token ni accès à la base.
      */
     @Bean
     SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -160,10 +191,14 @@ public class Centrale {
 				.exceptionHandling(exception -> exception.authenticationEntryPoint(closedDoor))
 				.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 				.authorizeHttpRequests(auth -> auth.requestMatchers("/api/auth/**").permitAll()
-						.requestMatchers("/api/test/**").permitAll().anyRequest().authenticated());
+						.requestMatchers("/api/test/**").permitAll()
+						.requestMatchers("/error").permitAll()
+						.requestMatchers("/actuator/health/**").permitAll()
+						.requestMatchers("/actuator/**").hasRole("ADMIN").anyRequest().authenticated());
 
 		http.authenticationProvider(authenticationProvider());
 
+		http.addFilterBefore(loadShedder(), SecurityContextHolderFilter.class);
 		http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
 
 		return http.build();
@@ -18,6 +18,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/*
+ Pour l'injection du journal d'audit.
+ */
+import org.springframework.beans.factory.annotation.Autowired;
+
 /*
  * Pour gérer les exceptions d'authentification.
  */
@@ -33,6 +38,12 @@ import org.springframework.security.web.AuthenticationEntryPoint;
  */
 import org.springframework.stereotype.Component;
 
+/*
+ Journal d'audit des authentifications.
+ */
+import com.diefthyntis.TwoautJwtApi.audit.AuditJournal;
+import com.diefthyntis.TwoautJwtApi.audit.AuditType;
+
 
 /*
  ================================================================================
@@ -58,6 +69,18 @@ public class ClosedDoor implements AuthenticationEntryPoint {
 
   private static final Logger logger = LoggerFactory.getLogger(ClosedDoor.class);
 
+  /*
+   Un échec de /signin est déjà journalisé par Doorman (SIGNIN_FAILURE, avec le nom) :
+   il n'est pas ajouté une seconde fois comme UNAUTHORIZED.
+   */
+  private static final String SIGNIN_PATH = "/api/auth/signin";
+
+  /*
+   Journal d'audit (facultatif) : chaque refus y est ajouté avec le chemin demandé.
+   */
+  @Autowired(required = false)
+  private AuditJournal audit;
+
   /*
    Cette méthode est invoquée chaque fois qu'une exception d'authentification est levée. 
    Elle prend en paramètres la requête HTTP, la réponse HTTP, et l'exception d'authentification.
@@ -66,6 +89,9 @@ public class ClosedDoor implements AuthenticationEntryPoint {
   public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
       throws IOException, ServletException {
     logger.error("Unauthorized error: {}", authException.getMessage());
+    if (audit != null && !SIGNIN_PATH.equals(request.getServletPath())) {
+      audit.record(AuditType.UNAUTHORIZED, 0, request.getRequestURI());
+    }
     
     
     /*
@@ -0,0 +1,126 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.diefthyntis.TwoautJwtApi.repository.InternautListing;
+import com.diefthyntis.TwoautJwtApi.repository.InternautSummary;
+import com.diefthyntis.TwoautJwtApi.service.RoleAssignments;
+import com.diefthyntis.TwoautJwtApi.service.RoleChangeReport;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ ================================================================================
+ Registre des comptes pour l'administration (ROLE_ADMIN uniquement, via RoleGate et
+ @EnableMethodSecurity), à la place des requêtes SQL lancées à la main sur MySQL.
+
+ GET /api/admin/internauts?afterId=0&limit=100[&shard=0]
+    Une page d'utilisateurs avec leurs rôles, par pagination sur l'id (voir InternautListing).
+    La réponse donne nextShard / nextAfterId pour demander la page suivante.
+
+ GET /api/admin/internauts/export
+    Tous les utilisateurs en NDJSON (un objet JSON par ligne), écrits au fil de la lecture
+    du curseur directement dans le flux de la réponse par un JsonGenerator Jackson :
+    ni liste en mémoire ni réponse tamponnée, quel que soit le nombre de comptes.
+
+ POST /api/admin/roles/grant et /api/admin/roles/revoke  {"role": "ROLE_MODERATOR", "usernames": [...]}
+    Attribue ou retire un rôle à tout un groupe de comptes en SQL ensembliste, par lots
+    (voir RoleAssignments), et renvoie les compteurs de lignes modifiées.
+ ================================================================================
+ */
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("@roleGate.has(authentication, 'ROLE_ADMIN')")
+public class Concierge {
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	@Autowired
+	InternautListing listing;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	RoleAssignments roleAssignments;
+
+	@GetMapping("/internauts")
+	public ResponseEntity<InternautPage> list(@RequestParam(defaultValue = "0") int shard,
+			@RequestParam(defaultValue = "0") long afterId, @RequestParam(defaultValue = "100") int limit) {
+		int size = Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+		if (shard < 0 || shard >= listing.getShardCount()) {
+			return ResponseEntity.badRequest().build();
+		}
+
+		List<InternautSummary> items = listing.page(shard, afterId, size);
+		if (items.size() == size) {
+			return ResponseEntity.ok(new InternautPage(items, shard, items.get(size - 1).getId()));
+		}
+		/* shard épuisé : la suite commence au début du shard suivant */
+		boolean last = shard + 1 >= listing.getShardCount();
+		return ResponseEntity.ok(new InternautPage(items, last ? null : shard + 1, last ? null : 0L));
+	}
+
+	@PostMapping("/roles/grant")
+	public ResponseEntity<RoleChangeReport> grant(@Valid @RequestBody RoleChange change) {
+		return ResponseEntity.ok(roleAssignments.grant(change.getRole(), change.getUsernames()));
+	}
+
+	@PostMapping("/roles/revoke")
+	public ResponseEntity<RoleChangeReport> revoke(@Valid @RequestBody RoleChange change) {
+		return ResponseEntity.ok(roleAssignments.revoke(change.getRole(), change.getUsernames()));
+	}
+
+	@GetMapping("/internauts/export")
+	public void export(HttpServletResponse response) throws IOException {
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"internauts.ndjson\"");
+
+		OutputStream out = response.getOutputStream();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			listing.export(internaut -> write(generator, internaut));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void write(JsonGenerator generator, InternautSummary internaut) {
+		try {
+			generator.writeStartObject();
+			generator.writeNumberField("id", internaut.getId());
+			generator.writeStringField("username", internaut.getUsername());
+			generator.writeStringField("email", internaut.getEmail());
+			generator.writeArrayFieldStart("roles");
+			for (String role : internaut.getRoles()) {
+				generator.writeString(role);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
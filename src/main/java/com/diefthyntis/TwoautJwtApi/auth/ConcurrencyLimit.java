@@ -0,0 +1,88 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ Limite de concurrence adaptative (AIMD) pour une famille de routes (voir LoadShedder).
+
+ Chaque requête terminée est un échantillon :
+    lente (au-delà de latencyMs) ou en erreur serveur -> la limite est multipliée par BACKOFF,
+        au plus une fois par latencyMs pour qu'une rafale d'échantillons lents ne la fasse pas
+        s'effondrer d'un coup ;
+    rapide alors que la limite est au moins à moitié utilisée -> la limite croît de 1 / limite,
+        soit d'environ une unité par « fenêtre » de limite requêtes (comme la fenêtre TCP).
+ La limite reste comprise entre min et max.
+ */
+final class ConcurrencyLimit {
+
+	private static final double BACKOFF = 0.9;
+
+	private final String route;
+
+	private final int min;
+
+	private final int max;
+
+	private final long latencyNanos;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile int limit;
+
+	private double exactLimit;
+
+	private long lastDecrease;
+
+	ConcurrencyLimit(String route, int initial, int min, int max, long latencyMs) {
+		this.route = route;
+		this.min = Math.max(1, min);
+		this.max = Math.max(this.min, max);
+		this.latencyNanos = latencyMs * 1_000_000;
+		this.exactLimit = Math.min(this.max, Math.max(this.min, initial));
+		this.limit = (int) exactLimit;
+		this.lastDecrease = System.nanoTime() - latencyNanos;
+	}
+
+	boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/*
+	 startNanos : instant de l'acquisition (System.nanoTime) ; failed : erreur serveur ou exception.
+	 */
+	void release(long startNanos, boolean failed) {
+		long now = System.nanoTime();
+		int current = inFlight.getAndDecrement();
+		synchronized (this) {
+			if (failed || now - startNanos > latencyNanos) {
+				if (now - lastDecrease >= latencyNanos) {
+					exactLimit = Math.max(min, exactLimit * BACKOFF);
+					lastDecrease = now;
+				}
+			} else if (current * 2 >= limit) {
+				exactLimit = Math.min(max, exactLimit + 1 / exactLimit);
+			}
+			limit = (int) exactLimit;
+		}
+	}
+
+	String getRoute() {
+		return route;
+	}
+
+	int getLimit() {
+		return limit;
+	}
+
+	int getInFlight() {
+		return inFlight.get();
+	}
+}
@@ -4,11 +4,15 @@ Ce contrôleur gère deux opérations principales :
     Connexion des utilisateurs (/signin):
         Authentifie l'utilisateur.
         Génère et renvoie un token JWT avec les détails de l'utilisateur.
+        Si l'utilisateur a activé le second facteur (/totp/enroll puis /totp/activate), renvoie à la place
+        un token "mfa-pending" à échanger sur /signin/verify avec un code TOTP.
 
     Inscription des utilisateurs (/signup):
         Vérifie si le nom d'utilisateur et l'email sont uniques.
-        Crée un nouvel utilisateur avec des rôles appropriés.
-        Sauvegarde l'utilisateur dans la base de données.
+        Refuse un mot de passe présent dans le filtre des mots de passe compromis (BreachedPasswords).
+        Crée un nouvel utilisateur avec le seul rôle ROLE_USER.
+        Sauvegarde l'utilisateur dans la base de données, avec l'événement d'inscription
+        destiné aux systèmes en aval dans la même transaction (OutboxRelay).
         Renvoie un message de succès.
 
 Le code utilise les bonnes pratiques de sécurité de Spring, 
@@ -59,7 +63,7 @@ Méthode registerUser
   La méthode vérifie si le nom d'utilisateur ou l'email existe déjà dans la base de données.
   Si le nom d'utilisateur ou l'email est déjà utilisé, une réponse d'erreur est renvoyée.
   Sinon, un nouvel utilisateur est créé et son mot de passe est encodé.
-  Les rôles sont attribués à l'utilisateur en fonction de la demande (par défaut, ROLE_USER).
+  L'utilisateur reçoit ROLE_USER ; les rôles élevés ne s'obtiennent pas par l'inscription.
   L'utilisateur est sauvegardé dans la base de données.
   Une réponse de succès est renvoyée.
  */
@@ -71,31 +75,42 @@ package com.diefthyntis.TwoautJwtApi.auth;
 import java.util.HashSet;
 
 
-import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.diefthyntis.TwoautJwtApi.audit.AuditJournal;
+import com.diefthyntis.TwoautJwtApi.audit.AuditType;
+import com.diefthyntis.TwoautJwtApi.flight.PasswordCheckEvent;
+import com.diefthyntis.TwoautJwtApi.flight.SignupStepEvent;
 import com.diefthyntis.TwoautJwtApi.model.ERole;
 import com.diefthyntis.TwoautJwtApi.model.Internaut;
 import com.diefthyntis.TwoautJwtApi.model.Role;
-import com.diefthyntis.TwoautJwtApi.repository.InternautRepository;
 import com.diefthyntis.TwoautJwtApi.repository.RoleRepository;
+import com.diefthyntis.TwoautJwtApi.repository.ShardedInternauts;
+import com.diefthyntis.TwoautJwtApi.service.LoginAttempts;
+import com.diefthyntis.TwoautJwtApi.service.OutboxRelay;
 import com.diefthyntis.TwoautJwtApi.service.User;
+import com.diefthyntis.TwoautJwtApi.service.UserService;
 
 
 
@@ -105,11 +120,35 @@ import com.diefthyntis.TwoautJwtApi.service.User;
 @RestController
 @RequestMapping("/api/auth")
 public class Doorman {
+  /*
+   Réponses constantes encodées une seule fois en JSON (voir ReturnedResponse.preEncoded).
+   */
+  private static final byte[] USERNAME_TAKEN = ReturnedResponse.preEncoded("Error: Username is already taken!");
+
+  private static final byte[] EMAIL_IN_USE = ReturnedResponse.preEncoded("Error: Email is already in use!");
+
+  private static final byte[] REGISTERED = ReturnedResponse.preEncoded("User registered successfully!");
+
+  private static final byte[] SIGNED_OUT = ReturnedResponse.preEncoded("User signed out successfully!");
+
+  private static final byte[] PASSWORD_BREACHED = ReturnedResponse.preEncoded("Error: Password has appeared in a data breach!");
+
+  private static final byte[] INVALID_CODE = ReturnedResponse.preEncoded("Error: Invalid verification code!");
+
+
+  private static final byte[] NOT_AUTHENTICATED = ReturnedResponse.preEncoded("Error: Authentication required!");
+
+  private static final byte[] TOTP_ACTIVATED = ReturnedResponse.preEncoded("Second factor activated!");
+
+  private static final byte[] SESSIONS_FULL = ReturnedResponse.preEncoded("Error: Too many open sessions, try again later!");
+
+  private static final String OPAQUE_MODE = "opaque";
+
   @Autowired
   AuthenticationManager authenticationManager;
 
   @Autowired
-  InternautRepository internautRepository;
+  ShardedInternauts internauts;
 
   @Autowired
   RoleRepository roleRepository;
@@ -120,76 +159,240 @@ public class Doorman {
   @Autowired
   Toolbox toolbox;
 
+  @Autowired
+  UserService userService;
+
+  @Autowired
+  TotpGuard totpGuard;
+
+  @Autowired(required = false)
+  SessionTable sessions;
+
+  @Autowired(required = false)
+  BreachedPasswords breachedPasswords;
+
+  @Autowired(required = false)
+  OutboxRelay outbox;
+
+  @Autowired(required = false)
+  AuditJournal audit;
+
+  @Autowired
+  LoginAttempts loginAttempts;
+
+  @Value("${opaque.app.tokenMode:jwt}")
+  String defaultTokenMode;
+
   @PostMapping("/signin")
   public ResponseEntity<?> authenticateUser(@Valid @RequestBody InputCredential loginRequest) {
 
-    Authentication authentication = authenticationManager.authenticate(
-        new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+    PasswordCheckEvent passwordCheck = new PasswordCheckEvent();
+    passwordCheck.username = loginRequest.getUsername();
+    passwordCheck.begin();
+    Authentication authentication;
+    try {
+      authentication = authenticationManager.authenticate(
+          new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+      passwordCheck.success = true;
+    } catch (AuthenticationException e) {
+      loginAttempts.failed(loginRequest.getUsername());
+      if (audit != null) {
+        audit.record(AuditType.SIGNIN_FAILURE, 0, loginRequest.getUsername());
+      }
+      throw e;
+    } finally {
+      passwordCheck.commit();
+    }
 
-    SecurityContextHolder.getContext().setAuthentication(authentication);
-    String jwt = toolbox.generateJwtToken(authentication);
-    
     User userDetails = (User) authentication.getPrincipal();    
-    List<String> roles = userDetails.getAuthorities().stream()
-        .map(item -> item.getAuthority())
-        .collect(Collectors.toList());
+    if (userDetails.isMfaEnabled()) {
+      /* l'échec éventuel du code TOTP compte encore : le compteur n'est effacé qu'à la fin */
+      return ResponseEntity.ok(new MfaChallenge(toolbox.generateMfaPendingToken(userDetails.getUsername())));
+    }
+
+    return issueToken(authentication, loginRequest.getTokenMode());
+  }
+
+  /*
+   Seconde étape : le code TOTP est vérifié en mémoire (TotpGuard), sans écriture en base.
+   */
+  @PostMapping("/signin/verify")
+  public ResponseEntity<?> verifySecondFactor(@Valid @RequestBody MfaCredential verifyRequest) {
+    String username = toolbox.resolvePendingSubject(verifyRequest.getMfaToken());
+    if (username == null) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(INVALID_CODE);
+    }
+
+    if (loginAttempts.isLocked(username)) {
+      /* compte verrouillé : même réponse qu'un code faux, sans consommer de code */
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(INVALID_CODE);
+    }
+
+    User userDetails = (User) userService.loadUserByUsername(username);
+    if (!totpGuard.verify(userDetails.getId(), userDetails.getTotpSecret(), verifyRequest.getCode())) {
+      loginAttempts.failed(username);
+      if (audit != null) {
+        audit.record(AuditType.MFA_FAILURE, userDetails.getId(), username);
+      }
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(INVALID_CODE);
+    }
+
+    Authentication authentication = new UsernamePasswordAuthenticationToken(
+        userDetails, null, userDetails.getAuthorities());
+    return issueToken(authentication, verifyRequest.getTokenMode());
+  }
+
+  /*
+   Propose un nouveau secret TOTP à l'utilisateur authentifié par son token. Le secret n'est
+   montré qu'ici (l'URI otpauth:// est à scanner) et reste en attente : le second facteur actuel
+   est conservé tant que /totp/activate n'a pas reçu un code valide du nouveau secret.
+   Si un second facteur est déjà actif, son code courant est exigé : un token volé ne suffit
+   pas à remplacer le facteur de la victime.
+   */
+  @PostMapping("/totp/enroll")
+  public ResponseEntity<?> enrollSecondFactor(@RequestBody(required = false) TotpCode currentCode) {
+    User user = currentUser();
+    if (user == null) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(NOT_AUTHENTICATED);
+    }
+
+    if (user.isMfaEnabled()
+        && (currentCode == null || !totpGuard.verify(user.getId(), user.getTotpSecret(), currentCode.getCode()))) {
+      loginAttempts.failed(user.getUsername());
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(INVALID_CODE);
+    }
+
+    String secret = TotpGuard.newSecret();
+    internauts.updateTotpPending(user.getUsername(), secret);
+
+    return ResponseEntity.ok(new TotpEnrollment(secret, totpGuard.uri(user.getUsername(), secret)));
+  }
+
+  /*
+   Confirme le secret proposé par /totp/enroll avec un code qu'il a produit : il devient
+   alors le second facteur actif, demandé à chaque connexion.
+   */
+  @PostMapping("/totp/activate")
+  public ResponseEntity<?> activateSecondFactor(@RequestBody TotpCode newCode) {
+    User user = currentUser();
+    if (user == null) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(NOT_AUTHENTICATED);
+    }
+
+    String pending = internauts.findTotpPending(user.getUsername());
+    if (pending == null || !totpGuard.verify(user.getId(), pending, newCode.getCode())
+        || internauts.activateTotp(user.getUsername(), pending) == 0) {
+      loginAttempts.failed(user.getUsername());
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).contentType(MediaType.APPLICATION_JSON).body(INVALID_CODE);
+    }
+    userService.modified(user.getUsername());
+
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(TOTP_ACTIVATED);
+  }
+
+  /*
+   Utilisateur du token, relu en base : un principal restauré depuis SessionTable ne porte pas
+   le secret TOTP, et celui-ci a pu changer depuis l'émission du token.
+   */
+  private User currentUser() {
+    Authentication current = SecurityContextHolder.getContext().getAuthentication();
+    if (current == null || !(current.getPrincipal() instanceof User user)) {
+      return null;
+    }
+    return (User) userService.loadUserByUsername(user.getUsername());
+  }
+
+  private ResponseEntity<?> issueToken(Authentication authentication, String requestedMode) {
+    User userDetails = (User) authentication.getPrincipal();
+    String tokenMode = requestedMode != null ? requestedMode : defaultTokenMode;
+    String jwt = sessions != null && OPAQUE_MODE.equals(tokenMode)
+        ? sessions.issue(userDetails)
+        : toolbox.generateJwtToken(authentication);
+    if (jwt == null) {
+      /* table des sessions pleine : le client réessaiera quand des sessions auront expiré */
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "60")
+          .contentType(MediaType.APPLICATION_JSON).body(SESSIONS_FULL);
+    }
+
+    SecurityContextHolder.getContext().setAuthentication(authentication);
+    loginAttempts.succeeded(userDetails.getUsername());
+    if (audit != null) {
+      audit.record(AuditType.SIGNIN_SUCCESS, userDetails.getId(), userDetails.getUsername());
+    }
 
     return ResponseEntity.ok(new ReturnedToken(jwt, 
                          userDetails.getId(), 
                          userDetails.getUsername(), 
                          userDetails.getEmail(), 
-                         roles));
+                         userDetails.getRoleNames()));
+  }
+
+  /*
+   Révoque immédiatement un token opaque (sans effet sur un JWT, qui expire de lui-même).
+   */
+  @PostMapping("/signout")
+  public ResponseEntity<?> signout(@RequestHeader(name = "Authorization", required = false) String authorization) {
+    if (sessions != null && authorization != null && authorization.startsWith("Bearer ")) {
+      sessions.revoke(authorization.substring("Bearer ".length()));
+    }
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(SIGNED_OUT);
   }
 
   @PostMapping("/signup")
   public ResponseEntity<?> registerUser(@Valid @RequestBody NewCredential signUpRequest) {
-    if (internautRepository.existsByName(signUpRequest.getUsername())) {
-      return ResponseEntity.badRequest().body(new ReturnedResponse("Error: Username is already taken!"));
+    String username = signUpRequest.getUsername();
+
+    SignupStepEvent step = SignupStepEvent.start("usernameCheck", username);
+    boolean usernameTaken = internauts.existsByName(username);
+    step.commit();
+    if (usernameTaken) {
+      return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(USERNAME_TAKEN);
+    }
+
+    step = SignupStepEvent.start("emailCheck", username);
+    boolean emailInUse = internauts.existsByEmail(signUpRequest.getEmail());
+    step.commit();
+    if (emailInUse) {
+      return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(EMAIL_IN_USE);
     }
 
-    if (internautRepository.existsByEmail(signUpRequest.getEmail())) {
-      return ResponseEntity.badRequest().body(new ReturnedResponse("Error: Email is already in use!"));
+    if (breachedPasswords != null) {
+      step = SignupStepEvent.start("breachCheck", username);
+      boolean breached = breachedPasswords.isBreached(signUpRequest.getPassword());
+      step.commit();
+      if (breached) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(PASSWORD_BREACHED);
+      }
     }
 
     // Create new user's account
-    Internaut internaut = new Internaut(signUpRequest.getUsername(),
+    step = SignupStepEvent.start("hash", username);
+    Internaut internaut = new Internaut(username,
                          signUpRequest.getEmail(),
                          encoder.encode(signUpRequest.getPassword()));
+    step.commit();
 
-    Set<String> strRoles = signUpRequest.getRole();
+    step = SignupStepEvent.start("roles", username);
+    /*
+     L'inscription publique ne donne que ROLE_USER, quel que soit le champ role de la demande :
+     les rôles élevés s'attribuent par /api/admin/roles/grant (voir aussi AdminBootstrap).
+     */
     Set<Role> roles = new HashSet<>();
-
-    if (strRoles == null) {
-      Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-          .orElseThrow(() -> new RuntimeException("Error 1: Role is not found."));
-      roles.add(userRole);
-    } else {
-      strRoles.forEach(role -> {
-        switch (role) {
-        case "admin":
-          Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-              .orElseThrow(() -> new RuntimeException("Error 2: Role is not found."));
-          roles.add(adminRole);
-
-          break;
-        case "mod":
-          Role modRole = roleRepository.findByName(ERole.ROLE_MODERATOR)
-              .orElseThrow(() -> new RuntimeException("Error 3: Role is not found."));
-          roles.add(modRole);
-
-          break;
-        default:
-          Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-              .orElseThrow(() -> new RuntimeException("Error 4: Role is not found."));
-          roles.add(userRole);
-        }
-      });
-    }
+    roles.add(roleRepository.findByName(ERole.ROLE_USER)
+        .orElseThrow(() -> new RuntimeException("Error 1: Role is not found.")));
 
     internaut.setRoles(roles);
-    internautRepository.save(internaut);
+    step.commit();
+
+    step = SignupStepEvent.start("save", username);
+    Internaut saved = internauts.save(internaut, outbox == null ? null : outbox::registered);
+    step.commit();
+    if (audit != null) {
+      audit.record(AuditType.SIGNUP, saved.getId(), username);
+    }
+    userService.registered(username);
 
-    return ResponseEntity.ok(new ReturnedResponse("User registered successfully!"));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(REGISTERED);
   }
 
   
@@ -0,0 +1,53 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+ ================================================================================
+ Introspection de tokens par lots pour les passerelles (voir Introspector).
+
+ POST /api/gateway/introspect  {"tokens": [...]}
+    Un résultat par token (actif ou non, sujet, rôles, expiration), et un Cache-Control qui
+    autorise à garder la réponse jusqu'à la plus proche expiration.
+
+ Comme le demande la RFC 7662, l'appelant doit s'authentifier : hors de /api/auth/**, la route
+ exige un token, et seul un compte portant ROLE_GATEWAY (attribué par /api/admin/roles/grant)
+ y a accès. Sans cela, n'importe qui pourrait tester la validité de tokens volés.
+ ================================================================================
+ */
+@RestController
+@RequestMapping("/api/gateway")
+@PreAuthorize("@roleGate.has(authentication, 'ROLE_GATEWAY')")
+public class Gatehouse {
+
+  private static final byte[] BATCH_TOO_LARGE = ReturnedResponse.preEncoded("Error: Too many tokens in one request!");
+
+  @Autowired
+  Introspector introspector;
+
+  @PostMapping("/introspect")
+  public ResponseEntity<?> introspect(@Valid @RequestBody IntrospectionRequest introspectionRequest) {
+    List<String> tokens = introspectionRequest.getTokens();
+    if (tokens.size() > introspector.getMaxBatch()) {
+      return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(BATCH_TOO_LARGE);
+    }
+
+    List<TokenIntrospection> results = introspector.introspect(tokens);
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(introspector.cacheSeconds(results), TimeUnit.SECONDS).cachePrivate())
+        .body(new IntrospectionResponse(results));
+  }
+}
@@ -0,0 +1,219 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ ================================================================================
+ Vérification rapide des JWT HS256 émis par Toolbox.generateJwtToken.
+
+ Ces tokens ont toujours la même forme : en-tête {"alg":"HS256"} et charge utile
+ {"sub":"...","iat":...,"exp":...}. Pour eux, ce vérificateur :
+    découpe le token sur ses deux points sans regex ni sous-chaîne,
+    calcule la signature avec un Mac HmacSHA256 réutilisé par thread (clé déjà chargée),
+    compare les signatures en temps constant (MessageDigest.isEqual),
+    lit exp et sub en parcourant la charge utile décodée, sans construire de Map de claims.
+ Les tampons de travail sont eux aussi propres à chaque thread : seul le nom renvoyé est alloué.
+
+ Tout token qui ne suit pas exactement cette forme (autre en-tête, autre claim, échappements,
+ exp absent...) est confié au parser jjwt (fallback), qui reste la référence.
+ ================================================================================
+ */
+public class Hs256Verifier {
+
+	private static final Logger logger = LoggerFactory.getLogger(Hs256Verifier.class);
+
+	/* base64url de {"alg":"HS256"}, l'en-tête produit par jjwt pour SignatureAlgorithm.HS256 */
+	private static final String HEADER = "eyJhbGciOiJIUzI1NiJ9";
+
+	private static final int SIGNATURE_LENGTH = 32;
+
+	private static final int ENCODED_SIGNATURE_LENGTH = 43;
+
+	private static final int MAX_TOKEN_LENGTH = 1024;
+
+	private static final byte[] BASE64URL = new byte[128];
+
+	static {
+		Arrays.fill(BASE64URL, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64URL[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	private final ThreadLocal<Scratch> scratch;
+
+	public Hs256Verifier(byte[] key) {
+		SecretKeySpec secret = new SecretKeySpec(key, "HmacSHA256");
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(secret));
+	}
+
+	/*
+	 Renvoie le sujet d'un token valide, null s'il est invalide ou expiré.
+	 Les tokens d'une autre forme sont résolus par fallback.
+	 */
+	public String resolveSubject(String token, Function<String, String> fallback) {
+		int length = token.length();
+		int firstDot = token.indexOf('.');
+		int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+		if (length > MAX_TOKEN_LENGTH || firstDot != HEADER.length() || secondDot < 0
+				|| token.indexOf('.', secondDot + 1) >= 0 || !token.startsWith(HEADER)
+				|| length - secondDot - 1 != ENCODED_SIGNATURE_LENGTH) {
+			return fallback.apply(token);
+		}
+
+		Scratch work = scratch.get();
+
+		/* signature calculée sur "en-tête.charge" */
+		byte[] input = work.input;
+		for (int i = 0; i < secondDot; i++) {
+			char c = token.charAt(i);
+			if (c >= 128) {
+				return fallback.apply(token);
+			}
+			input[i] = (byte) c;
+		}
+		work.mac.update(input, 0, secondDot);
+		try {
+			work.mac.doFinal(work.expected, 0);
+		} catch (GeneralSecurityException e) {
+			return fallback.apply(token);
+		}
+
+		if (decode(token, secondDot + 1, length, work.signature) != SIGNATURE_LENGTH
+				|| !MessageDigest.isEqual(work.expected, work.signature)) {
+			logger.error("Invalid JWT signature");
+			return null;
+		}
+
+		int payloadLength = decode(token, firstDot + 1, secondDot, work.payload);
+		if (payloadLength < 0) {
+			return fallback.apply(token);
+		}
+		return readClaims(token, work.payload, payloadLength, fallback);
+	}
+
+	/*
+	 Parcourt {"sub":"...","iat":n,"exp":n} : toute autre clé ou syntaxe renvoie au fallback.
+	 */
+	private static String readClaims(String token, byte[] json, int length, Function<String, String> fallback) {
+		int subjectStart = -1;
+		int subjectEnd = -1;
+		long exp = -1;
+		int i = 0;
+		if (length < 2 || json[i++] != '{') {
+			return fallback.apply(token);
+		}
+		while (i < length) {
+			if (json[i++] != '"' || i + 5 > length || json[i + 3] != '"' || json[i + 4] != ':') {
+				return fallback.apply(token);
+			}
+			byte a = json[i], b = json[i + 1], c = json[i + 2];
+			i += 5;
+			if (a == 's' && b == 'u' && c == 'b') {
+				if (i >= length || json[i++] != '"') {
+					return fallback.apply(token);
+				}
+				subjectStart = i;
+				while (i < length && json[i] != '"') {
+					if (json[i] == '\\') {
+						return fallback.apply(token);
+					}
+					i++;
+				}
+				if (i >= length) {
+					return fallback.apply(token);
+				}
+				subjectEnd = i++;
+			} else if ((a == 'e' && b == 'x' && c == 'p') || (a == 'i' && b == 'a' && c == 't')) {
+				long value = 0;
+				int digits = 0;
+				while (i < length && json[i] >= '0' && json[i] <= '9' && digits < 18) {
+					value = value * 10 + (json[i++] - '0');
+					digits++;
+				}
+				if (digits == 0) {
+					return fallback.apply(token);
+				}
+				if (a == 'e') {
+					exp = value;
+				}
+			} else {
+				return fallback.apply(token);
+			}
+
+			if (i >= length) {
+				return fallback.apply(token);
+			}
+			byte separator = json[i++];
+			if (separator == '}') {
+				break;
+			}
+			if (separator != ',') {
+				return fallback.apply(token);
+			}
+		}
+
+		if (i != length || subjectStart < 0 || exp < 0) {
+			return fallback.apply(token);
+		}
+		if (System.currentTimeMillis() > exp * 1000) {
+			logger.error("JWT token is expired");
+			return null;
+		}
+		return new String(json, subjectStart, subjectEnd - subjectStart, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 Décode le base64url (sans bourrage) de token[from, to) dans out ; -1 si invalide ou trop long.
+	 */
+	private static int decode(String token, int from, int to, byte[] out) {
+		int written = 0;
+		int buffer = 0;
+		int bits = 0;
+		for (int i = from; i < to; i++) {
+			char c = token.charAt(i);
+			int value = c < 128 ? BASE64URL[c] : -1;
+			if (value < 0) {
+				return -1;
+			}
+			buffer = (buffer << 6) | value;
+			bits += 6;
+			if (bits >= 8) {
+				bits -= 8;
+				if (written == out.length) {
+					return -1;
+				}
+				out[written++] = (byte) (buffer >> bits);
+			}
+		}
+		return written;
+	}
+
+	private static final class Scratch {
+		final Mac mac;
+		final byte[] input = new byte[MAX_TOKEN_LENGTH];
+		final byte[] payload = new byte[MAX_TOKEN_LENGTH];
+		final byte[] expected = new byte[SIGNATURE_LENGTH];
+		final byte[] signature = new byte[SIGNATURE_LENGTH];
+
+		Scratch(SecretKeySpec secret) {
+			try {
+				mac = Mac.getInstance("HmacSHA256");
+				mac.init(secret);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("HmacSHA256 is not available", e);
+			}
+		}
+	}
+}
@@ -9,6 +9,12 @@ public class InputCredential {
 	@NotBlank
 	private String password;
 
+	/*
+	 * Type de token souhaité : "jwt" ou "opaque" (voir SessionTable).
+	 * Facultatif : à défaut, opaque.app.tokenMode s'applique.
+	 */
+	private String tokenMode;
+
 	public String getUsername() {
 		return username;
 	}
@@ -24,4 +30,12 @@ public class InputCredential {
 	public void setPassword(String password) {
 		this.password = password;
 	}
+
+	public String getTokenMode() {
+		return tokenMode;
+	}
+
+	public void setTokenMode(String tokenMode) {
+		this.tokenMode = tokenMode;
+	}
 }
\ No newline at end of file
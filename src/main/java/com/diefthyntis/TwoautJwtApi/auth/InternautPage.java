@@ -0,0 +1,32 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+
+import com.diefthyntis.TwoautJwtApi.repository.InternautSummary;
+
+public class InternautPage {
+  private List<InternautSummary> items;
+  private Integer nextShard;
+  private Long nextAfterId;
+
+  public InternautPage(List<InternautSummary> items, Integer nextShard, Long nextAfterId) {
+    this.items = items;
+    this.nextShard = nextShard;
+    this.nextAfterId = nextAfterId;
+  }
+
+  public List<InternautSummary> getItems() {
+    return items;
+  }
+
+  /*
+   Paramètres de la page suivante (shard, afterId), null en fin de liste.
+   */
+  public Integer getNextShard() {
+    return nextShard;
+  }
+
+  public Long getNextAfterId() {
+    return nextAfterId;
+  }
+}
@@ -0,0 +1,18 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+
+public class IntrospectionRequest {
+	@NotEmpty
+	private List<String> tokens;
+
+	public List<String> getTokens() {
+		return tokens;
+	}
+
+	public void setTokens(List<String> tokens) {
+		this.tokens = tokens;
+	}
+}
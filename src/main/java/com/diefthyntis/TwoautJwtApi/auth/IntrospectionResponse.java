@@ -0,0 +1,18 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+
+public class IntrospectionResponse {
+  private final List<TokenIntrospection> results;
+
+  public IntrospectionResponse(List<TokenIntrospection> results) {
+    this.results = results;
+  }
+
+  /*
+   Un résultat par token, dans l'ordre de la requête.
+   */
+  public List<TokenIntrospection> getResults() {
+    return results;
+  }
+}
@@ -0,0 +1,128 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.service.User;
+import com.diefthyntis.TwoautJwtApi.service.UserService;
+
+import io.jsonwebtoken.Claims;
+
+/*
+ ================================================================================
+ Introspection de tokens par lots, pour la passerelle et les sidecars (POST /api/gateway/introspect, Gatehouse).
+
+ Chaque token est vérifié comme le ferait Watchdog, avec le parser et la clé partagés de Toolbox
+ (JWT) ou la table des sessions (token opaque), puis son utilisateur est chargé pour ses rôles
+ (UserService, requêtes simultanées sur un même nom regroupées).
+ Les tokens d'un lot sont vérifiés en parallèle sur un pool dédié de taille fixe : un lot ne
+ peut ni bloquer les threads de Tomcat au-delà de sa propre requête ni saturer le pool commun.
+
+ cacheSeconds donne la durée pendant laquelle la passerelle peut garder le lot en cache :
+ jusqu'à la plus proche expiration des tokens actifs, bornée par maxCacheSeconds pour qu'une
+ révocation ou un changement de rôles soit vu sans attendre la fin du token.
+ ================================================================================
+ */
+@Component
+public class Introspector {
+
+	private final ExecutorService pool;
+
+	@Autowired
+	Toolbox toolbox;
+
+	@Autowired
+	UserService userService;
+
+	@Autowired(required = false)
+	SessionTable sessions;
+
+	@Value("${opaque.app.introspection.maxBatch:100}")
+	int maxBatch;
+
+	@Value("${opaque.app.introspection.maxCacheSeconds:300}")
+	long maxCacheSeconds;
+
+	public Introspector(@Value("${opaque.app.introspection.threads:0}") int threads) {
+		int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger counter = new AtomicInteger();
+		this.pool = Executors.newFixedThreadPool(size, runnable -> {
+			Thread thread = new Thread(runnable, "introspector-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	void stop() {
+		pool.shutdownNow();
+	}
+
+	public int getMaxBatch() {
+		return maxBatch;
+	}
+
+	public List<TokenIntrospection> introspect(List<String> tokens) {
+		if (tokens.size() == 1) {
+			return List.of(introspect(tokens.get(0)));
+		}
+		List<CompletableFuture<TokenIntrospection>> pending = new ArrayList<>(tokens.size());
+		for (String token : tokens) {
+			pending.add(CompletableFuture.supplyAsync(() -> introspect(token), pool));
+		}
+		List<TokenIntrospection> results = new ArrayList<>(tokens.size());
+		for (CompletableFuture<TokenIntrospection> result : pending) {
+			results.add(result.join());
+		}
+		return results;
+	}
+
+	/*
+	 Durée de cache (secondes) d'un lot de résultats.
+	 */
+	public long cacheSeconds(List<TokenIntrospection> results) {
+		long now = System.currentTimeMillis() / 1000;
+		long seconds = maxCacheSeconds;
+		for (TokenIntrospection result : results) {
+			if (result.isActive()) {
+				seconds = Math.min(seconds, Math.max(0, result.getExp() - now));
+			}
+		}
+		return seconds;
+	}
+
+	private TokenIntrospection introspect(String token) {
+		if (token == null || token.isEmpty()) {
+			return TokenIntrospection.INACTIVE;
+		}
+		try {
+			if (sessions != null && SessionTable.isHandle(token)) {
+				User user = sessions.resolve(token);
+				long expires = sessions.expiresAt(token);
+				return user == null || expires < 0 ? TokenIntrospection.INACTIVE
+						: new TokenIntrospection(true, user.getUsername(), user.getRoleNames(), expires / 1000);
+			}
+
+			Claims claims = toolbox.resolveClaims(token);
+			if (claims == null || claims.getSubject() == null || claims.getExpiration() == null) {
+				return TokenIntrospection.INACTIVE;
+			}
+			User user = (User) userService.loadUserByUsername(claims.getSubject());
+			return new TokenIntrospection(true, user.getUsername(), user.getRoleNames(),
+					claims.getExpiration().getTime() / 1000);
+		} catch (UsernameNotFoundException e) {
+			return TokenIntrospection.INACTIVE;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/*
+ Configuration de Jackson pour les DTO de l'API (ReturnedToken, InputCredential, NewCredential...).
+
+ Le module Blackbird remplace les appels par réflexion aux getters/setters par des accès
+ générés via LambdaMetafactory : (dé)sérialiser un DTO devient un appel direct.
+ Spring Boot enregistre automatiquement tout bean Module dans l'ObjectMapper partagé.
+ */
+@Configuration
+public class JsonSetup {
+
+	@Bean
+	public Module blackbirdModule() {
+		return new BlackbirdModule();
+	}
+}
@@ -0,0 +1,126 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.IOException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Délestage des requêtes en surcharge, placé en tête de la chaîne de sécurité (voir Centrale).
+ *
+ * Sans limite, Tomcat met en file d'attente toutes les requêtes derrière BCrypt et la base,
+ * et la latence s'effondre pour tout le monde. Ici, deux limites de concurrence adaptatives
+ * (ConcurrencyLimit) sont appliquées séparément :
+ *    auth : /api/auth/signin (et /signin/verify) et /api/auth/signup, coûteuses (BCrypt) ;
+ *    api  : les autres routes /api/**, authentifiées par token.
+ * Une requête au-delà de la limite reçoit aussitôt un 503 (Retry-After: 1), sans lire son
+ * token ni toucher la base. Les autres routes (actuator, /error) ne sont pas limitées,
+ * pas plus que /api/admin/** : un export de plusieurs minutes fausserait la mesure de latence.
+ *
+ * Métriques : opaque.limiter.limit et opaque.limiter.inflight (jauges) et
+ * opaque.limiter.rejected (compteur), étiquetées route=auth|api.
+ */
+public class LoadShedder extends OncePerRequestFilter {
+
+	private static final byte[] OVERLOADED = ReturnedResponse.preEncoded("Error: Server is overloaded, retry later!");
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${opaque.app.limiter.auth.initial:20}")
+	private int authInitial;
+
+	@Value("${opaque.app.limiter.auth.min:4}")
+	private int authMin;
+
+	@Value("${opaque.app.limiter.auth.max:200}")
+	private int authMax;
+
+	@Value("${opaque.app.limiter.auth.latencyMs:500}")
+	private long authLatencyMs;
+
+	@Value("${opaque.app.limiter.api.initial:100}")
+	private int apiInitial;
+
+	@Value("${opaque.app.limiter.api.min:10}")
+	private int apiMin;
+
+	@Value("${opaque.app.limiter.api.max:1000}")
+	private int apiMax;
+
+	@Value("${opaque.app.limiter.api.latencyMs:200}")
+	private long apiLatencyMs;
+
+	private ConcurrencyLimit authLimit;
+
+	private ConcurrencyLimit apiLimit;
+
+	private Counter authRejected;
+
+	private Counter apiRejected;
+
+	@PostConstruct
+	void init() {
+		authLimit = new ConcurrencyLimit("auth", authInitial, authMin, authMax, authLatencyMs);
+		apiLimit = new ConcurrencyLimit("api", apiInitial, apiMin, apiMax, apiLatencyMs);
+		authRejected = register(authLimit);
+		apiRejected = register(apiLimit);
+	}
+
+	private Counter register(ConcurrencyLimit limit) {
+		Gauge.builder("opaque.limiter.limit", limit, ConcurrencyLimit::getLimit)
+				.description("Current adaptive concurrency limit").tag("route", limit.getRoute())
+				.register(meterRegistry);
+		Gauge.builder("opaque.limiter.inflight", limit, ConcurrencyLimit::getInFlight)
+				.description("Requests currently admitted").tag("route", limit.getRoute())
+				.register(meterRegistry);
+		return Counter.builder("opaque.limiter.rejected").description("Requests shed with a 503")
+				.tag("route", limit.getRoute()).register(meterRegistry);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		boolean auth = path.startsWith("/api/auth/signin") || path.startsWith("/api/auth/signup");
+		ConcurrencyLimit limit = auth ? authLimit
+				: path.startsWith("/api/") && !path.startsWith("/api/admin/") ? apiLimit : null;
+		if (limit == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		if (!limit.tryAcquire()) {
+			(auth ? authRejected : apiRejected).increment();
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			response.setContentLength(OVERLOADED.length);
+			response.getOutputStream().write(OVERLOADED);
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			filterChain.doFilter(request, response);
+			failed = response.getStatus() >= 500;
+		} finally {
+			limit.release(start, failed);
+		}
+	}
+}
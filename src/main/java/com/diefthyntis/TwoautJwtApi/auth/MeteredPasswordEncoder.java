@@ -0,0 +1,48 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/*
+ Enveloppe d'un PasswordEncoder qui observe le hachage et la vérification des mots de passe.
+
+ Chaque appel produit une observation opaque.password (operation=encode|matches) :
+ un timer du même nom côté métriques, et un span côté traces.
+ Avec les métriques du pool HikariCP (hikaricp.connections.acquire, .active, .pending),
+ ce timer permet de savoir si la latence de /signin vient de l'attente
+ d'une connexion à la base ou du coût de BCrypt.
+ */
+public class MeteredPasswordEncoder implements PasswordEncoder {
+
+	private final PasswordEncoder delegate;
+
+	private final ObservationRegistry registry;
+
+	public MeteredPasswordEncoder(PasswordEncoder delegate, ObservationRegistry registry) {
+		this.delegate = delegate;
+		this.registry = registry;
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return observation("encode").observe(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return observation("matches").observe(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	private Observation observation(String operation) {
+		return Observation.createNotStarted("opaque.password", registry)
+				.contextualName("password " + operation)
+				.lowCardinalityKeyValue("operation", operation);
+	}
+}
@@ -0,0 +1,18 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+public class MfaChallenge {
+  private String mfaToken;
+  private boolean mfaRequired = true;
+
+  public MfaChallenge(String mfaToken) {
+    this.mfaToken = mfaToken;
+  }
+
+  public String getMfaToken() {
+    return mfaToken;
+  }
+
+  public boolean isMfaRequired() {
+    return mfaRequired;
+  }
+}
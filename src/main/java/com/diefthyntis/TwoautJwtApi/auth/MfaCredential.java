@@ -0,0 +1,44 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import jakarta.validation.constraints.NotBlank;
+
+/*
+ * Seconde étape de /signin : le token "mfa-pending" reçu à la première étape
+ * et le code à 6 chiffres de l'application d'authentification.
+ */
+public class MfaCredential {
+	@NotBlank
+	private String mfaToken;
+
+	@NotBlank
+	private String code;
+
+	/*
+	 * Type de token souhaité : "jwt" ou "opaque", comme pour InputCredential.
+	 */
+	private String tokenMode;
+
+	public String getMfaToken() {
+		return mfaToken;
+	}
+
+	public void setMfaToken(String mfaToken) {
+		this.mfaToken = mfaToken;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public String getTokenMode() {
+		return tokenMode;
+	}
+
+	public void setTokenMode(String tokenMode) {
+		this.tokenMode = tokenMode;
+	}
+}
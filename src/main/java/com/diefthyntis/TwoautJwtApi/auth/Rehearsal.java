@@ -0,0 +1,137 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.repository.InternautRepository;
+import com.diefthyntis.TwoautJwtApi.service.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ ================================================================================
+ Répétition générale avant l'ouverture au trafic.
+
+ Juste après un déploiement, les premières requêtes paient la compilation JIT des chemins
+ jjwt, Jackson et BCrypt ainsi que la première requête Hibernate. Ce composant exécute ces
+ chemins en parallèle pendant le démarrage :
+
+    signature et vérification d'un token (Toolbox),
+    sérialisation / désérialisation des DTO d'authentification (ObjectMapper),
+    hachage et vérification BCrypt (PasswordEncoder),
+    recherche d'un utilisateur (InternautRepository).
+
+ Un ApplicationRunner s'exécute avant que Spring Boot ne publie ReadinessState.ACCEPTING_TRAFFIC :
+ l'instance ne se déclare donc prête qu'une fois la répétition terminée (ou son délai écoulé).
+
+ Activé par opaque.app.warmup.enabled=true (voir le profil faststart).
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(name = "opaque.app.warmup.enabled", havingValue = "true")
+public class Rehearsal implements ApplicationRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(Rehearsal.class);
+
+	private static final String REHEARSAL_USER = "rehearsal";
+
+	@Autowired
+	private Toolbox toolbox;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PasswordEncoder encoder;
+
+	@Autowired
+	private InternautRepository internautRepository;
+
+	@Value("${opaque.app.warmup.iterations:200}")
+	private int iterations;
+
+	@Value("${opaque.app.warmup.hashIterations:5}")
+	private int hashIterations;
+
+	@Value("${opaque.app.warmup.timeoutMs:30000}")
+	private long timeoutMs;
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> rehearsals = new ArrayList<>();
+			rehearsals.add(executor.submit(this::rehearseTokens));
+			rehearsals.add(executor.submit(this::rehearseJson));
+			rehearsals.add(executor.submit(this::rehearseHashing));
+			rehearsals.add(executor.submit(this::rehearseLookup));
+
+			long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+			for (Future<?> rehearsal : rehearsals) {
+				try {
+					rehearsal.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					logger.warn("Warm-up did not finish within {} ms, opening to traffic anyway", timeoutMs);
+					break;
+				} catch (Exception e) {
+					logger.warn("Warm-up step failed: {}", e.getMessage());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		logger.info("Warm-up completed in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private void rehearseTokens() {
+		User user = new User(0L, REHEARSAL_USER, REHEARSAL_USER + "@localhost", null, ERole.ROLE_USER.bit());
+		UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user, null,
+				user.getAuthorities());
+		for (int i = 0; i < iterations; i++) {
+			toolbox.resolveSubject(toolbox.generateJwtToken(authentication));
+		}
+	}
+
+	private Void rehearseJson() throws Exception {
+		User user = new User(0L, REHEARSAL_USER, REHEARSAL_USER + "@localhost", null, ERole.ROLE_USER.bit());
+		byte[] credential = "{\"username\":\"rehearsal\",\"password\":\"rehearsal\"}".getBytes();
+		for (int i = 0; i < iterations; i++) {
+			objectMapper.readValue(credential, InputCredential.class);
+			objectMapper.writeValueAsBytes(new ReturnedToken("token", user.getId(), user.getUsername(),
+					user.getEmail(), user.getRoleNames()));
+			objectMapper.writeValueAsBytes(new ReturnedResponse("User registered successfully!"));
+		}
+		return null;
+	}
+
+	private void rehearseHashing() {
+		String hash = encoder.encode(REHEARSAL_USER);
+		for (int i = 0; i < hashIterations; i++) {
+			encoder.matches(REHEARSAL_USER, hash);
+		}
+	}
+
+	private void rehearseLookup() {
+		for (int i = 0; i < iterations; i++) {
+			internautRepository.findByName(REHEARSAL_USER);
+			internautRepository.existsByName(REHEARSAL_USER);
+		}
+	}
+}
@@ -1,8 +1,25 @@
 package com.diefthyntis.TwoautJwtApi.auth;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
 public class ReturnedResponse {
   private String message;
 
+  /*
+   Encode une fois pour toutes {"message":"..."} en UTF-8, pour les réponses constantes :
+   renvoyé tel quel (byte[]), le corps ne repasse pas par la sérialisation Jackson.
+   */
+  public static byte[] preEncoded(String message) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    json.writeBytes("{\"message\":\"".getBytes(StandardCharsets.UTF_8));
+    json.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(message));
+    json.writeBytes("\"}".getBytes(StandardCharsets.UTF_8));
+    return json.toByteArray();
+  }
+
   public ReturnedResponse(String message) {
     this.message = message;
   }
@@ -0,0 +1,37 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+
+/*
+ * Rôle à attribuer ou retirer à une liste de comptes (voir RoleAssignments).
+ */
+public class RoleChange {
+	@NotNull
+	private ERole role;
+
+	@NotEmpty
+	@Size(max = 100000)
+	private List<String> usernames;
+
+	public ERole getRole() {
+		return role;
+	}
+
+	public void setRole(ERole role) {
+		this.role = role;
+	}
+
+	public List<String> getUsernames() {
+		return usernames;
+	}
+
+	public void setUsernames(List<String> usernames) {
+		this.usernames = usernames;
+	}
+}
@@ -0,0 +1,43 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.service.RoleMask;
+import com.diefthyntis.TwoautJwtApi.service.User;
+
+/*
+ Vérification de rôle en O(1) pour les expressions de @EnableMethodSecurity.
+
+ Exemple : @PreAuthorize("@roleGate.has(authentication, 'ROLE_ADMIN')")
+
+ Quand le principal est notre User, le test se résume à un ET binaire sur son masque de rôles,
+ sans parcourir la liste des autorités. Pour tout autre principal, on retombe sur les autorités.
+ */
+@Component("roleGate")
+public class RoleGate {
+
+	public boolean has(Authentication authentication, String role) {
+		return has(authentication, ERole.valueOf(role));
+	}
+
+	public boolean has(Authentication authentication, ERole role) {
+		if (authentication == null || !authentication.isAuthenticated()) {
+			return false;
+		}
+
+		if (authentication.getPrincipal() instanceof User user) {
+			return user.hasRole(role);
+		}
+
+		GrantedAuthority expected = RoleMask.authority(role);
+		for (GrantedAuthority authority : authentication.getAuthorities()) {
+			if (expected.getAuthority().equals(authority.getAuthority())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
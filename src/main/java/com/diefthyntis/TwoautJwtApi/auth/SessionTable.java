@@ -0,0 +1,656 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.service.RolesChangedEvent;
+import com.diefthyntis.TwoautJwtApi.service.User;
+
+/*
+ ================================================================================
+ Table des sessions des tokens opaques (référence), hors du tas Java.
+
+ /signin peut délivrer, au lieu d'un JWT, un identifiant aléatoire de 128 bits (32 caractères
+ hexadécimaux) associé ici à un principal compact. Révoquer un token revient à supprimer
+ son entrée : l'effet est immédiat.
+
+ L'identifiant lui-même n'est jamais conservé : la table (et le fichier de sauvegarde) ne
+ contient que son HMAC-SHA256 tronqué à 128 bits, sous la clé opaque.app.sessions.hashKey
+ (par défaut opaque.app.jwtSecret). Un vidage mémoire ou une copie du fichier ne donne aucun
+ token utilisable.
+
+ Chaque entrée occupe un emplacement fixe de 128 octets dans des ByteBuffer directs :
+    0  état (vide, vivant, supprimé)     4  masque de rôles
+    8  HMAC (64 bits hauts)             16  HMAC (64 bits bas)
+   24  expiration (epoch ms)            32  id de l'internaut
+   40  longueur du nom                  42  nom (UTF-8, 86 octets au plus)
+
+ La table est découpée en segments indépendants (adressage ouvert, sondage linéaire),
+ chacun protégé par un StampedLock : les lectures sont optimistes et ne bloquent pas.
+ Des millions de sessions n'ajoutent ainsi aucun objet au tas ni travail au GC.
+
+ Un balayage périodique supprime les sessions expirées et compacte les segments chargés
+ d'entrées supprimées. À l'arrêt, les sessions vivantes sont écrites dans le fichier
+ opaque.app.sessions.snapshot (créé en lecture-écriture pour le seul propriétaire), relu au
+ démarrage suivant ; un enregistrement incohérent y est ignoré, de même que les sessions en
+ trop si la capacité a été réduite entre-temps.
+
+ Table pleine : issue renvoie null (Doorman répond 503) au lieu de lever une exception.
+ resolve décode le nom dans un tampon propre au thread et réutilise le dernier User construit
+ par ce thread pour la même session : seuls un String et un User sont alloués par session
+ nouvelle pour le thread, rien pour une session qu'il vient de résoudre.
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(name = "opaque.app.sessions.enabled", havingValue = "true")
+public class SessionTable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionTable.class);
+
+	public static final int HANDLE_LENGTH = 32;
+
+	private static final int SLOT = 128;
+	private static final int STATE = 0;
+	private static final int ROLE_MASK = 4;
+	private static final int KEY_HI = 8;
+	private static final int KEY_LO = 16;
+	private static final int EXPIRES = 24;
+	private static final int USER_ID = 32;
+	private static final int NAME_LENGTH = 40;
+	private static final int NAME = 42;
+	private static final int MAX_NAME = SLOT - NAME;
+
+	private static final int EMPTY = 0;
+	private static final int LIVE = 1;
+	private static final int DELETED = 2;
+
+	/* « TWSH » : enregistrements indexés par HMAC ; une sauvegarde plus ancienne est ignorée */
+	private static final int SNAPSHOT_MAGIC = 0x54575348;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final long ttlMs;
+
+	private final long sweepIntervalMs;
+
+	private final Path snapshot;
+
+	private final ThreadLocal<Digest> digest;
+
+	private ScheduledExecutorService sweeper;
+
+	public SessionTable(@Value("${opaque.app.sessions.capacity:65536}") int capacity,
+			@Value("${opaque.app.sessions.segments:64}") int segmentCount,
+			@Value("${opaque.app.sessions.ttlMs:${opaque.app.jwtExpirationMs}}") long ttlMs,
+			@Value("${opaque.app.sessions.sweepIntervalMs:60000}") long sweepIntervalMs,
+			@Value("${opaque.app.sessions.snapshot:}") String snapshot,
+			@Value("${opaque.app.sessions.hashKey:${opaque.app.jwtSecret}}") String hashKey) {
+		int segmentsPowerOfTwo = Integer.highestOneBit(Math.max(1, segmentCount));
+		int needed = Math.max(16, (int) ((capacity / (long) segmentsPowerOfTwo) * 4 / 3 + 1));
+		int slotsPerSegment = Integer.highestOneBit(needed - 1) << 1;
+		this.segments = new Segment[segmentsPowerOfTwo];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment(slotsPerSegment);
+		}
+		this.segmentMask = segmentsPowerOfTwo - 1;
+		this.ttlMs = ttlMs;
+		this.sweepIntervalMs = sweepIntervalMs;
+		this.snapshot = snapshot.isBlank() ? null : Path.of(snapshot);
+		SecretKeySpec key = new SecretKeySpec(hashKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+		this.digest = ThreadLocal.withInitial(() -> new Digest(key));
+	}
+
+	@PostConstruct
+	void start() throws IOException {
+		if (snapshot != null && Files.exists(snapshot)) {
+			logger.info("Restored {} sessions from {}", restore(snapshot), snapshot);
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "session-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void stop() throws IOException {
+		sweeper.shutdownNow();
+		if (snapshot != null) {
+			save(snapshot);
+		}
+	}
+
+	/*
+	 Crée une session pour user et renvoie son identifiant opaque, ou null si la table est pleine.
+	 */
+	public String issue(User user) {
+		byte[] name = user.getUsername().getBytes(StandardCharsets.UTF_8);
+		if (name.length > MAX_NAME) {
+			throw new IllegalArgumentException("Username too long for an opaque session");
+		}
+		long hi = random.nextLong();
+		long lo = random.nextLong();
+		long userId = user.getId() == null ? 0 : user.getId();
+		Digest key = digest(hi, lo);
+		if (!segmentFor(key.hi, key.lo).put(key.hi, key.lo, System.currentTimeMillis() + ttlMs, userId,
+				user.getRoleMask(), name)) {
+			logger.warn("Session table is full, no opaque session issued");
+			return null;
+		}
+		return HexFormat.of().toHexDigits(hi) + HexFormat.of().toHexDigits(lo);
+	}
+
+	/*
+	 Renvoie le principal de la session, ou null si l'identifiant est inconnu, révoqué ou expiré.
+	 */
+	public User resolve(CharSequence handle) {
+		if (!isHandle(handle)) {
+			return null;
+		}
+		Digest key = digest(parseHex(handle, 0), parseHex(handle, 16));
+		if (!segmentFor(key.hi, key.lo).get(key, System.currentTimeMillis())) {
+			return null;
+		}
+		return key.principal();
+	}
+
+	/*
+	 Date d'expiration (ms depuis l'epoch) d'une session valide, -1 sinon.
+	 */
+	public long expiresAt(CharSequence handle) {
+		if (!isHandle(handle)) {
+			return -1;
+		}
+		Digest key = digest(parseHex(handle, 0), parseHex(handle, 16));
+		return segmentFor(key.hi, key.lo).expiresAt(key.hi, key.lo, System.currentTimeMillis());
+	}
+
+	public boolean revoke(CharSequence handle) {
+		if (!isHandle(handle)) {
+			return false;
+		}
+		Digest key = digest(parseHex(handle, 0), parseHex(handle, 16));
+		return segmentFor(key.hi, key.lo).remove(key.hi, key.lo);
+	}
+
+	/*
+	 Supprime les sessions de ces internautes (changement de rôles, blocage...).
+	 */
+	public int revokeUsers(Set<Long> userIds) {
+		int revoked = 0;
+		for (Segment segment : segments) {
+			revoked += segment.removeUsers(userIds);
+		}
+		return revoked;
+	}
+
+	/*
+	 Les rôles copiés dans les sessions de ces internautes ne sont plus à jour : ils devront
+	 se reconnecter.
+	 */
+	@EventListener
+	public void rolesChanged(RolesChangedEvent event) {
+		int revoked = revokeUsers(event.getUserIds());
+		logger.info("{} sessions revoked after a {} change", revoked, event.getRole());
+	}
+
+	public static boolean isHandle(CharSequence token) {
+		if (token == null || token.length() != HANDLE_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < HANDLE_LENGTH; i++) {
+			if (Character.digit(token.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.live;
+		}
+		return size;
+	}
+
+	void sweep() {
+		long now = System.currentTimeMillis();
+		for (Segment segment : segments) {
+			segment.sweep(now);
+		}
+	}
+
+	private static long parseHex(CharSequence handle, int from) {
+		long value = 0;
+		for (int i = from; i < from + 16; i++) {
+			value = (value << 4) | Character.digit(handle.charAt(i), 16);
+		}
+		return value;
+	}
+
+	/*
+	 HMAC de l'identifiant ; le Digest renvoyé appartient au thread et est réutilisé à l'appel suivant.
+	 */
+	private Digest digest(long hi, long lo) {
+		Digest digest = this.digest.get();
+		digest.compute(hi, lo);
+		return digest;
+	}
+
+	private Segment segmentFor(long hi, long lo) {
+		return segments[(int) mix(hi, lo) & segmentMask];
+	}
+
+	private static long mix(long hi, long lo) {
+		long h = hi ^ (lo * 0x9E3779B97F4A7C15L);
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private void save(Path file) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		long now = System.currentTimeMillis();
+		int saved = 0;
+		Files.deleteIfExists(temporary);
+		FileAttribute<?>[] ownerOnly = file.getFileSystem().supportedFileAttributeViews().contains("posix")
+				? new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) }
+				: new FileAttribute<?>[0];
+		try (FileChannel channel = FileChannel.open(temporary,
+				Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), ownerOnly)) {
+			ByteBuffer header = ByteBuffer.allocate(8).putInt(SNAPSHOT_MAGIC).putInt(SLOT).flip();
+			channel.write(header);
+			for (Segment segment : segments) {
+				saved += segment.writeLive(channel, now);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logger.info("Saved {} sessions to {}", saved, file);
+	}
+
+	private int restore(Path file) throws IOException {
+		long now = System.currentTimeMillis();
+		int restored = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(8);
+			channel.read(header);
+			header.flip();
+			if (header.remaining() < 8 || header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SLOT) {
+				logger.warn("Ignoring session snapshot {} with an unknown layout", file);
+				return 0;
+			}
+			ByteBuffer record = ByteBuffer.allocate(SLOT);
+			int invalid = 0;
+			int skipped = 0;
+			while (readFully(channel, record)) {
+				long expires = record.getLong(EXPIRES);
+				if (record.getInt(STATE) == LIVE && expires > now) {
+					int length = record.getShort(NAME_LENGTH);
+					if (length < 0 || length > MAX_NAME) {
+						invalid++;
+						continue;
+					}
+					long hi = record.getLong(KEY_HI);
+					long lo = record.getLong(KEY_LO);
+					byte[] name = new byte[length];
+					record.get(NAME, name);
+					if (segmentFor(hi, lo).put(hi, lo, expires, record.getLong(USER_ID), record.getInt(ROLE_MASK), name)) {
+						restored++;
+					} else {
+						skipped++;
+					}
+				}
+			}
+			if (invalid > 0) {
+				logger.warn("Ignored {} invalid records in session snapshot {}", invalid, file);
+			}
+			if (skipped > 0) {
+				logger.warn("Skipped {} sessions from {}: the table is full", skipped, file);
+			}
+		}
+		return restored;
+	}
+
+	private static boolean readFully(FileChannel channel, ByteBuffer record) throws IOException {
+		record.clear();
+		while (record.hasRemaining()) {
+			if (channel.read(record) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 État propre à chaque thread : HMAC de l'identifiant, champs de la dernière entrée lue
+	 (nom dans un tampon réutilisé) et dernier principal construit, avec la clé de sa session.
+	 Une entrée n'est jamais modifiée après son insertion : même clé, même principal.
+	 */
+	private static final class Digest {
+		final Mac mac;
+		final ByteBuffer input = ByteBuffer.allocate(16);
+		final byte[] output = new byte[32];
+		long hi;
+		long lo;
+
+		final byte[] name = new byte[MAX_NAME];
+		int nameLength;
+		long userId;
+		int roleMask;
+
+		User principal;
+		long principalHi;
+		long principalLo;
+
+		Digest(SecretKeySpec key) {
+			try {
+				mac = Mac.getInstance("HmacSHA256");
+				mac.init(key);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("HmacSHA256 is not available", e);
+			}
+		}
+
+		void compute(long handleHi, long handleLo) {
+			input.clear();
+			input.putLong(handleHi).putLong(handleLo);
+			mac.update(input.array(), 0, 16);
+			try {
+				mac.doFinal(output, 0);
+			} catch (ShortBufferException e) {
+				throw new IllegalStateException(e);
+			}
+			ByteBuffer result = ByteBuffer.wrap(output);
+			hi = result.getLong(0);
+			lo = result.getLong(8);
+		}
+
+		User principal() {
+			if (principal == null || principalHi != hi || principalLo != lo) {
+				principal = new User(userId, new String(name, 0, nameLength, StandardCharsets.UTF_8), null, null, roleMask);
+				principalHi = hi;
+				principalLo = lo;
+			}
+			return principal;
+		}
+	}
+
+	private static final class Segment {
+
+		private final StampedLock lock = new StampedLock();
+
+		private ByteBuffer slots;
+
+		private int slotMask;
+
+		private volatile int live;
+
+		private int deleted;
+
+		Segment(int capacity) {
+			this.slots = ByteBuffer.allocateDirect(capacity * SLOT);
+			this.slotMask = capacity - 1;
+		}
+
+		private int capacity() {
+			return slotMask + 1;
+		}
+
+		private static int start(long hi, long lo) {
+			return (int) (mix(hi, lo) >>> 32);
+		}
+
+		private int find(ByteBuffer slots, long hi, long lo) {
+			for (int i = 0, index = start(hi, lo) & slotMask; i <= slotMask; i++, index = (index + 1) & slotMask) {
+				int offset = index * SLOT;
+				int state = slots.getInt(offset + STATE);
+				if (state == EMPTY) {
+					return -1;
+				}
+				if (state == LIVE && slots.getLong(offset + KEY_HI) == hi && slots.getLong(offset + KEY_LO) == lo) {
+					return offset;
+				}
+			}
+			return -1;
+		}
+
+		boolean put(long hi, long lo, long expires, long userId, int roleMask, byte[] name) {
+			long stamp = lock.writeLock();
+			try {
+				if ((live + deleted + 1) * 4L > capacity() * 3L) {
+					sweepLocked(System.currentTimeMillis());
+					if ((live + deleted + 1) * 4L > capacity() * 3L) {
+						if (deleted > 0) {
+							rebuild();
+						}
+						if ((live + 1) * 4L > capacity() * 3L) {
+							return false;
+						}
+					}
+				}
+
+				int index = start(hi, lo) & slotMask;
+				while (slots.getInt(index * SLOT + STATE) == LIVE) {
+					index = (index + 1) & slotMask;
+				}
+				int offset = index * SLOT;
+				if (slots.getInt(offset + STATE) == DELETED) {
+					deleted--;
+				}
+				slots.putInt(offset + ROLE_MASK, roleMask);
+				slots.putLong(offset + KEY_HI, hi);
+				slots.putLong(offset + KEY_LO, lo);
+				slots.putLong(offset + EXPIRES, expires);
+				slots.putLong(offset + USER_ID, userId);
+				slots.putShort(offset + NAME_LENGTH, (short) name.length);
+				slots.put(offset + NAME, name);
+				slots.putInt(offset + STATE, LIVE);
+				live++;
+				return true;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/*
+		 Copie dans into l'entrée de sa clé ; false si elle est absente ou expirée.
+		 */
+		boolean get(Digest into, long now) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				try {
+					boolean found = read(into, now);
+					if (lock.validate(stamp)) {
+						return found;
+					}
+				} catch (RuntimeException e) {
+					// lecture concurrente d'une écriture ou d'une reconstruction : relue sous verrou
+				}
+			}
+			stamp = lock.readLock();
+			try {
+				return read(into, now);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private boolean read(Digest into, long now) {
+			ByteBuffer current = slots;
+			int offset = find(current, into.hi, into.lo);
+			if (offset < 0 || current.getLong(offset + EXPIRES) <= now) {
+				return false;
+			}
+			int length = current.getShort(offset + NAME_LENGTH);
+			if (length < 0 || length > MAX_NAME) {
+				return false;
+			}
+			current.get(offset + NAME, into.name, 0, length);
+			into.nameLength = length;
+			into.userId = current.getLong(offset + USER_ID);
+			into.roleMask = current.getInt(offset + ROLE_MASK);
+			return true;
+		}
+
+		long expiresAt(long hi, long lo, long now) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				try {
+					long expires = readExpiry(hi, lo, now);
+					if (lock.validate(stamp)) {
+						return expires;
+					}
+				} catch (RuntimeException e) {
+					// même cas que get : relue sous verrou
+				}
+			}
+			stamp = lock.readLock();
+			try {
+				return readExpiry(hi, lo, now);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private long readExpiry(long hi, long lo, long now) {
+			ByteBuffer current = slots;
+			int offset = find(current, hi, lo);
+			if (offset < 0) {
+				return -1;
+			}
+			long expires = current.getLong(offset + EXPIRES);
+			return expires > now ? expires : -1;
+		}
+
+		boolean remove(long hi, long lo) {
+			long stamp = lock.writeLock();
+			try {
+				int offset = find(slots, hi, lo);
+				if (offset < 0) {
+					return false;
+				}
+				slots.putInt(offset + STATE, DELETED);
+				live--;
+				deleted++;
+				return true;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		int removeUsers(Set<Long> userIds) {
+			long stamp = lock.writeLock();
+			try {
+				int removed = 0;
+				for (int offset = 0; offset < capacity() * SLOT; offset += SLOT) {
+					if (slots.getInt(offset + STATE) == LIVE && userIds.contains(slots.getLong(offset + USER_ID))) {
+						slots.putInt(offset + STATE, DELETED);
+						live--;
+						deleted++;
+						removed++;
+					}
+				}
+				return removed;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		void sweep(long now) {
+			long stamp = lock.writeLock();
+			try {
+				sweepLocked(now);
+				if (deleted * 4L > capacity()) {
+					rebuild();
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private void sweepLocked(long now) {
+			for (int offset = 0; offset < capacity() * SLOT; offset += SLOT) {
+				if (slots.getInt(offset + STATE) == LIVE && slots.getLong(offset + EXPIRES) <= now) {
+					slots.putInt(offset + STATE, DELETED);
+					live--;
+					deleted++;
+				}
+			}
+		}
+
+		/*
+		 Réinsère les entrées vivantes dans un buffer neuf pour éliminer les entrées supprimées,
+		 qui allongent les sondages.
+		 */
+		private void rebuild() {
+			ByteBuffer previous = slots;
+			ByteBuffer fresh = ByteBuffer.allocateDirect(previous.capacity());
+			for (int offset = 0; offset < previous.capacity(); offset += SLOT) {
+				if (previous.getInt(offset + STATE) == LIVE) {
+					long hi = previous.getLong(offset + KEY_HI);
+					long lo = previous.getLong(offset + KEY_LO);
+					int index = start(hi, lo) & slotMask;
+					while (fresh.getInt(index * SLOT + STATE) != EMPTY) {
+						index = (index + 1) & slotMask;
+					}
+					fresh.put(index * SLOT, previous, offset, SLOT);
+				}
+			}
+			slots = fresh;
+			deleted = 0;
+		}
+
+		int writeLive(FileChannel channel, long now) throws IOException {
+			long stamp = lock.readLock();
+			try {
+				int written = 0;
+				for (int offset = 0; offset < capacity() * SLOT; offset += SLOT) {
+					if (slots.getInt(offset + STATE) == LIVE && slots.getLong(offset + EXPIRES) > now) {
+						channel.write(slots.slice(offset, SLOT));
+						written++;
+					}
+				}
+				return written;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+	}
+}
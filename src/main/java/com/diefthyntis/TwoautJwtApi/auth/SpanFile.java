@@ -0,0 +1,78 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/*
+ Exportateur de spans local : une ligne par span dans le fichier opaque.app.tracing.file.
+
+    traceId spanId parentSpanId name durationMicros
+
+ Utile en développement ou pour mesurer le surcoût du traçage sans collecteur OTLP.
+ Spring Boot ajoute tout bean SpanExporter au pipeline OpenTelemetry (export par lots).
+ */
+@Component
+@ConditionalOnProperty(name = "opaque.app.tracing.file")
+public class SpanFile implements SpanExporter {
+
+	private final BufferedWriter writer;
+
+	public SpanFile(@Value("${opaque.app.tracing.file}") Path file) throws IOException {
+		this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	@Override
+	public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+		try {
+			for (SpanData span : spans) {
+				writer.write(span.getTraceId());
+				writer.write(' ');
+				writer.write(span.getSpanId());
+				writer.write(' ');
+				writer.write(span.getParentSpanId());
+				writer.write(' ');
+				writer.write(span.getName().replace(' ', '_'));
+				writer.write(' ');
+				writer.write(Long.toString((span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000));
+				writer.newLine();
+			}
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			return CompletableResultCode.ofFailure();
+		}
+	}
+
+	@Override
+	public synchronized CompletableResultCode flush() {
+		try {
+			writer.flush();
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			return CompletableResultCode.ofFailure();
+		}
+	}
+
+	@Override
+	public synchronized CompletableResultCode shutdown() {
+		try {
+			writer.close();
+			return CompletableResultCode.ofSuccess();
+		} catch (IOException e) {
+			return CompletableResultCode.ofFailure();
+		}
+	}
+}
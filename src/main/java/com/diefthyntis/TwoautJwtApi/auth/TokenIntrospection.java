@@ -0,0 +1,43 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * Résultat de l'introspection d'un token (champs inspirés de la RFC 7662).
+ * Un token inactif ne porte que active=false.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospection {
+  static final TokenIntrospection INACTIVE = new TokenIntrospection(false, null, null, null);
+
+  private final boolean active;
+  private final String sub;
+  private final List<String> roles;
+  private final Long exp;
+
+  TokenIntrospection(boolean active, String sub, List<String> roles, Long exp) {
+    this.active = active;
+    this.sub = sub;
+    this.roles = roles;
+    this.exp = exp;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  public String getSub() {
+    return sub;
+  }
+
+  public List<String> getRoles() {
+    return roles;
+  }
+
+  /* secondes depuis l'epoch */
+  public Long getExp() {
+    return exp;
+  }
+}
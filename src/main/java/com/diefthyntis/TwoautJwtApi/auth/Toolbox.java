@@ -29,21 +29,30 @@
             Le token est signé avec une clé générée à partir de jwtSecret en utilisant 
             l'algorithme HS256.
 
-    Méthode key :
-        Cette méthode génère une clé secrète à partir de jwtSecret 
-        en le décodant avec l'algorithme BASE64 et en utilisant Keys.hmacShaKeyFor.
+    Méthode init :
+        Cette méthode génère une fois pour toutes la clé secrète à partir de jwtSecret 
+        en le décodant avec l'algorithme BASE64 et en utilisant Keys.hmacShaKeyFor,
+        puis construit le parser jjwt partagé par toutes les vérifications.
 
     Méthode getUserNameFromJwtToken :
         Cette méthode extrait le nom d'utilisateur (sujet) d'un token JWT.
         Elle parse le token en utilisant la clé secrète pour le valider et récupère le sujet
          (nom d'utilisateur) du corps du token.
 
-    Méthode validateJwtToken :
-        Cette méthode valide un token JWT.
-        Elle essaie de parser le token avec la clé secrète et retourne true si le token est valide.
-        En cas d'exception (token mal formé, expiré, non supporté 
-        ou avec une chaîne de revendications vide), 
-        elle capture l'exception, enregistre un message d'erreur, et retourne false.
+    Méthode resolveSubject :
+        Cette méthode valide le token et renvoie son sujet en un seul parsing,
+        ou null si le token est invalide. Les tokens HS256 émis par generateJwtToken
+        passent par Hs256Verifier ; les autres sont confiés au parser jjwt.
+        Un token "mfa-pending" n'y est jamais accepté.
+
+    Méthode resolveClaims :
+        Variante de resolveSubject pour l'introspection (Introspector) : renvoie toutes
+        les revendications, dont la date d'expiration.
+
+    Méthodes generateMfaPendingToken et resolvePendingSubject :
+        Après le mot de passe, un utilisateur qui a activé le second facteur reçoit
+        un token de courte durée portant la revendication mfa=pending. Il ne sert
+        qu'à /signin/verify, qui l'échange contre un vrai token après le code TOTP.
 
 En résumé, la classe JwtUtils fournit des méthodes pour générer des tokens JWT, extraire des informations d'un token, et valider les tokens. Ces utilitaires sont couramment utilisés dans des applications sécurisées pour authentifier les utilisateurs et gérer les sessions de manière stateless.
 =========================================================================================
@@ -54,6 +63,8 @@ package com.diefthyntis.TwoautJwtApi.auth;
 import java.security.Key;
 import java.util.Date;
 
+import jakarta.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -62,7 +73,10 @@ import org.springframework.stereotype.Component;
 
 import com.diefthyntis.TwoautJwtApi.service.User;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -85,31 +99,101 @@ public class Toolbox {
   @Value("${opaque.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  @Value("${opaque.app.mfa.pendingMs:300000}")
+  private int mfaPendingMs;
+
+  private static final String MFA_CLAIM = "mfa";
+
+  private static final String MFA_PENDING = "pending";
+
+  /*
+   La clé et le parser ne dépendent que de la configuration : ils sont construits une seule fois
+   au démarrage (le parser jjwt est immuable et thread-safe) au lieu d'être recréés à chaque token.
+   */
+  private Key key;
+
+  private JwtParser parser;
+
+  private Hs256Verifier fastPath;
+
+  @PostConstruct
+  void init() {
+    key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    parser = Jwts.parserBuilder().setSigningKey(key).build();
+    fastPath = new Hs256Verifier(key.getEncoded());
+  }
+
   public String generateJwtToken(Authentication authentication) {
 
     User userPrincipal = (User) authentication.getPrincipal();
 
+    long now = System.currentTimeMillis();
     return Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
-        .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(key(), SignatureAlgorithm.HS256)
+        .setIssuedAt(new Date(now))
+        .setExpiration(new Date(now + jwtExpirationMs))
+        .signWith(key, SignatureAlgorithm.HS256)
+        .compact();
+  }
+
+  public String generateMfaPendingToken(String username) {
+    long now = System.currentTimeMillis();
+    return Jwts.builder()
+        .setSubject(username)
+        .claim(MFA_CLAIM, MFA_PENDING)
+        .setIssuedAt(new Date(now))
+        .setExpiration(new Date(now + mfaPendingMs))
+        .signWith(key, SignatureAlgorithm.HS256)
         .compact();
   }
-  
-  private Key key() {
-    return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+
+  /*
+   Renvoie le sujet d'un token "mfa-pending" valide, null pour tout autre token.
+   */
+  public String resolvePendingSubject(String pendingToken) {
+    try {
+      Claims claims = parser.parseClaimsJws(pendingToken).getBody();
+      return MFA_PENDING.equals(claims.get(MFA_CLAIM)) ? claims.getSubject() : null;
+    } catch (JwtException | IllegalArgumentException e) {
+      logger.error("Invalid MFA token: {}", e.getMessage());
+    }
+    return null;
+  }
+
+  /*
+   Revendications d'un token d'accès valide (pour l'introspection), null sinon.
+   Comme resolveSubject, refuse les tokens "mfa-pending".
+   */
+  public Claims resolveClaims(String authToken) {
+    try {
+      Claims claims = parser.parseClaimsJws(authToken).getBody();
+      return claims.containsKey(MFA_CLAIM) ? null : claims;
+    } catch (JwtException | IllegalArgumentException e) {
+      logger.debug("Introspected JWT token is rejected: {}", e.getMessage());
+    }
+    return null;
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parserBuilder().setSigningKey(key()).build()
-               .parseClaimsJws(token).getBody().getSubject();
+    return parser.parseClaimsJws(token).getBody().getSubject();
+  }
+
+  /*
+   Valide le token et en extrait le nom d'utilisateur en un seul parsing.
+   Renvoie null si le token est invalide : l'appelant n'a aucune exception à gérer.
+   */
+  public String resolveSubject(String authToken) {
+    return fastPath.resolveSubject(authToken, this::parseSubject);
   }
 
-  public boolean validateJwtToken(String authToken) {
+  private String parseSubject(String authToken) {
     try {
-      Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
-      return true;
+      Claims claims = parser.parseClaimsJws(authToken).getBody();
+      if (claims.containsKey(MFA_CLAIM)) {
+        logger.error("JWT token is waiting for its second factor");
+        return null;
+      }
+      return claims.getSubject();
     } catch (MalformedJwtException e) {
       logger.error("Invalid JWT token: {}", e.getMessage());
     } catch (ExpiredJwtException e) {
@@ -118,8 +202,10 @@ public class Toolbox {
       logger.error("JWT token is unsupported: {}", e.getMessage());
     } catch (IllegalArgumentException e) {
       logger.error("JWT claims string is empty: {}", e.getMessage());
+    } catch (JwtException e) {
+      logger.error("JWT token is rejected: {}", e.getMessage());
     }
 
-    return false;
+    return null;
   }
 }
\ No newline at end of file
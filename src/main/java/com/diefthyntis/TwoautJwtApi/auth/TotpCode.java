@@ -0,0 +1,17 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+/*
+ * Code à 6 chiffres de l'application d'authentification, pour /totp/enroll
+ * (code du second facteur actuel, s'il existe) et /totp/activate (code du nouveau secret).
+ */
+public class TotpCode {
+	private String code;
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+}
@@ -0,0 +1,19 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+public class TotpEnrollment {
+  private String secret;
+  private String uri;
+
+  public TotpEnrollment(String secret, String uri) {
+    this.secret = secret;
+    this.uri = uri;
+  }
+
+  public String getSecret() {
+    return secret;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+}
@@ -0,0 +1,225 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ ================================================================================
+ Second facteur TOTP (RFC 6238 : HMAC-SHA1, pas de 30 secondes, 6 chiffres).
+
+ Un code est accepté pour le pas courant ou ses voisins immédiats (décalage d'horloge).
+ Chaque code accepté est retenu dans un cache anti-rejeu en mémoire, découpé par pas de temps :
+    un seau par pas (STEP_BUCKETS seaux tournants), vidé dès qu'il est réutilisé pour un
+    nouveau pas, c'est-à-dire quand plus aucun code de l'ancien pas ne peut être accepté ;
+    dans un seau, une table à adressage ouvert de long (utilisateur, code), sans objet alloué.
+ La vérification ne coûte donc que trois HMAC et un accès verrouillé à un seau :
+ aucune écriture en base par tentative.
+
+ Un seau plein refuse les nouveaux codes (fail closed) plutôt que d'oublier les anciens.
+ ================================================================================
+ */
+@Component
+public class TotpGuard {
+
+	static final int STEP_SECONDS = 30;
+
+	private static final int DIGITS = 6;
+
+	private static final int MODULO = 1_000_000;
+
+	private static final int WINDOW = 1;
+
+	/* pas acceptés (2 * WINDOW + 1) plus un seau d'avance : un seau n'est réutilisé que périmé */
+	private static final int STEP_BUCKETS = 2 * WINDOW + 2;
+
+	private static final int SECRET_BYTES = 20;
+
+	private static final String BASE32 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+		try {
+			return Mac.getInstance("HmacSHA1");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("HmacSHA1 is not available", e);
+		}
+	});
+
+	private final Bucket[] buckets = new Bucket[STEP_BUCKETS];
+
+	private final String issuer;
+
+	public TotpGuard(@Value("${opaque.app.mfa.replayCapacity:65536}") int replayCapacity,
+			@Value("${opaque.app.mfa.issuer:TwoautJwtApi}") String issuer) {
+		int slots = Integer.highestOneBit(Math.max(16, replayCapacity) * 2 - 1);
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new Bucket(slots);
+		}
+		this.issuer = issuer;
+	}
+
+	/*
+	 Vérifie code pour l'utilisateur userId et le consomme : un même code n'est accepté qu'une fois.
+	 */
+	public boolean verify(long userId, String secret, String code) {
+		int value = parseCode(code);
+		if (value < 0 || secret == null) {
+			return false;
+		}
+		byte[] key = decode(secret);
+		if (key == null) {
+			return false;
+		}
+		long now = System.currentTimeMillis() / 1000 / STEP_SECONDS;
+		for (long step = now - WINDOW; step <= now + WINDOW; step++) {
+			if (generate(key, step) == value) {
+				return buckets[(int) Math.floorMod(step, (long) STEP_BUCKETS)].consume(step, userId * MODULO + value);
+			}
+		}
+		return false;
+	}
+
+	public static String newSecret() {
+		byte[] secret = new byte[SECRET_BYTES];
+		RANDOM.nextBytes(secret);
+		return encode(secret);
+	}
+
+	/*
+	 URI otpauth:// à présenter en QR code aux applications d'authentification.
+	 */
+	public String uri(String account, String secret) {
+		String label = URLEncoder.encode(issuer + ":" + account, StandardCharsets.UTF_8).replace("+", "%20");
+		return "otpauth://totp/" + label + "?secret=" + secret + "&issuer="
+				+ URLEncoder.encode(issuer, StandardCharsets.UTF_8).replace("+", "%20") + "&digits=" + DIGITS
+				+ "&period=" + STEP_SECONDS;
+	}
+
+	static int generate(byte[] key, long step) {
+		Mac mac = HMAC.get();
+		try {
+			mac.init(new SecretKeySpec(key, "HmacSHA1"));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Invalid TOTP key", e);
+		}
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			mac.update((byte) (step >>> shift));
+		}
+		byte[] hash = mac.doFinal();
+		int offset = hash[hash.length - 1] & 0x0f;
+		int binary = ((hash[offset] & 0x7f) << 24) | ((hash[offset + 1] & 0xff) << 16)
+				| ((hash[offset + 2] & 0xff) << 8) | (hash[offset + 3] & 0xff);
+		return binary % MODULO;
+	}
+
+	private static int parseCode(String code) {
+		if (code == null || code.length() != DIGITS) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = 0; i < DIGITS; i++) {
+			char c = code.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	static String encode(byte[] data) {
+		StringBuilder out = new StringBuilder((data.length * 8 + 4) / 5);
+		int buffer = 0;
+		int bits = 0;
+		for (byte b : data) {
+			buffer = (buffer << 8) | (b & 0xff);
+			bits += 8;
+			while (bits >= 5) {
+				bits -= 5;
+				out.append(BASE32.charAt((buffer >> bits) & 0x1f));
+			}
+		}
+		if (bits > 0) {
+			out.append(BASE32.charAt((buffer << (5 - bits)) & 0x1f));
+		}
+		return out.toString();
+	}
+
+	/*
+	 Décode le base32 (RFC 4648, bourrage et casse tolérés) ; null si invalide.
+	 */
+	static byte[] decode(String secret) {
+		byte[] out = new byte[secret.length() * 5 / 8];
+		int written = 0;
+		int buffer = 0;
+		int bits = 0;
+		for (int i = 0; i < secret.length(); i++) {
+			char c = Character.toUpperCase(secret.charAt(i));
+			if (c == '=') {
+				break;
+			}
+			int value = BASE32.indexOf(c);
+			if (value < 0) {
+				return null;
+			}
+			buffer = (buffer << 5) | value;
+			bits += 5;
+			if (bits >= 8) {
+				bits -= 8;
+				out[written++] = (byte) (buffer >> bits);
+			}
+		}
+		return written == 0 ? null : written == out.length ? out : Arrays.copyOf(out, written);
+	}
+
+	/*
+	 Codes acceptés pendant un pas de temps : clés (userId * 10^6 + code) en adressage ouvert.
+	 */
+	private static final class Bucket {
+		private final long[] keys;
+		private final int limit;
+		private long step = Long.MIN_VALUE;
+		private int size;
+
+		Bucket(int slots) {
+			keys = new long[slots];
+			limit = slots * 3 / 4;
+		}
+
+		synchronized boolean consume(long step, long key) {
+			if (this.step != step) {
+				if (step < this.step) {
+					return false;
+				}
+				Arrays.fill(keys, 0L);
+				size = 0;
+				this.step = step;
+			}
+			long stored = key + 1;
+			int mask = keys.length - 1;
+			int slot = (int) (stored ^ (stored >>> 29)) * 0x9E3779B9 & mask;
+			while (keys[slot] != 0) {
+				if (keys[slot] == stored) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (size >= limit) {
+				return false;
+			}
+			keys[slot] = stored;
+			size++;
+			return true;
+		}
+	}
+}
@@ -10,16 +10,21 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 
+import com.diefthyntis.TwoautJwtApi.flight.TokenCheckEvent;
+import com.diefthyntis.TwoautJwtApi.flight.UserResolutionEvent;
 import com.diefthyntis.TwoautJwtApi.service.UserService;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
 /*
  What we do inside doFilterInternal():
 – get JWT from the Authorization header (by removing Bearer prefix)
@@ -35,13 +40,38 @@ import com.diefthyntis.TwoautJwtApi.service.UserService;
  Cela permet de sécuriser les routes de l'application en vérifiant les autorisations des utilisateurs à chaque requête.
  */
 
+/*
+ Ce filtre est traversé par chaque requête : il est écrit pour allouer le moins possible.
+ - le token est validé et son sujet extrait en un seul parsing (Toolbox.resolveSubject),
+   qui renvoie null au lieu de lever une exception ;
+ - la source de WebAuthenticationDetails est sans état et partagée ;
+ - les détails (adresse IP, session) ne sont collectés que si opaque.app.jwtAuthDetails=true,
+   personne ne les lisant dans cette API stateless.
+ Un token opaque (32 caractères hexadécimaux, voir SessionTable) est résolu sans JWT ni base.
+ Les événements JFR (TokenCheckEvent, UserResolutionEvent) ne sont pas alloués hors
+ enregistrement (éliminés par le JIT), et une seule observation, sans lambda, couvre la
+ vérification. WatchdogAllocationTests mesure les octets alloués par requête.
+ */
 public class Watchdog extends OncePerRequestFilter {
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
+
 	@Autowired
 	private Toolbox toolbox;
 
 	@Autowired
 	private UserService userDetailsService;
 
+	@Autowired
+	private ObservationRegistry observationRegistry;
+
+	@Autowired(required = false)
+	private SessionTable sessions;
+
+	@Value("${opaque.app.jwtAuthDetails:false}")
+	private boolean collectDetails;
+
 	private static final Logger logger = LoggerFactory.getLogger(Watchdog.class);
 
 	@Override
@@ -49,21 +79,35 @@ public class Watchdog extends OncePerRequestFilter {
 			throws ServletException, IOException {
 		try {
 			String jwt = parseJwt(request);
-
-			/*
-			 * 2 - Validation du JWT : Si un JWT est présent et valide (vérifié par
-			 * jwtUtils.validateJwtToken(jwt)), le nom d'utilisateur est extrait du token
-			 * (jwtUtils.getUserNameFromJwtToken(jwt)).
-			 */
-			if (jwt != null && toolbox.validateJwtToken(jwt)) {
-				String username = toolbox.getUserNameFromJwtToken(jwt);
-
+			UserDetails userDetails = null;
+			if (jwt != null) {
 				/*
-				 * 3 - Chargement des détails de l'utilisateur : Les détails de l'utilisateur
-				 * sont chargés en utilisant le nom d'utilisateur extrait.
+				 * Une seule observation (un span) couvre la vérification du token et le
+				 * chargement de l'utilisateur, sans lambda capturante ; aucune si le registre
+				 * est inactif.
 				 */
-				UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+				Observation observation = observationRegistry.isNoop() ? null
+						: Observation.createNotStarted("opaque.watchdog", observationRegistry)
+								.contextualName("watchdog").start();
+				try (Observation.Scope scope = observation == null ? null : observation.openScope()) {
+					userDetails = resolve(jwt);
+				} catch (RuntimeException e) {
+					if (observation != null) {
+						observation.error(e);
+					}
+					throw e;
+				} finally {
+					if (observation != null) {
+						observation.stop();
+					}
+				}
+			} else {
+				TokenCheckEvent tokenCheck = new TokenCheckEvent();
+				tokenCheck.outcome = "ABSENT";
+				tokenCheck.commit();
+			}
 
+			if (userDetails != null) {
 				/*
 				 * 4 - Création de l'objet Authentication : Un objet
 				 * UsernamePasswordAuthenticationToken est créé avec les détails de
@@ -71,7 +115,9 @@ public class Watchdog extends OncePerRequestFilter {
 				 */
 				UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
 						userDetails, null, userDetails.getAuthorities());
-				authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+				if (collectDetails) {
+					authentication.setDetails(DETAILS_SOURCE.buildDetails(request));
+				}
 
 				/*
 				 * 5 - Stockage de l'authentification dans le contexte de sécurité : L'objet
@@ -82,7 +128,7 @@ public class Watchdog extends OncePerRequestFilter {
 				SecurityContextHolder.getContext().setAuthentication(authentication);
 			}
 		} catch (Exception e) {
-			logger.error("Cannot set user authentication: {}", e);
+			logger.error("Cannot set user authentication", e);
 		}
 
 		/*
@@ -92,6 +138,48 @@ public class Watchdog extends OncePerRequestFilter {
 		filterChain.doFilter(request, response);
 	}
 
+	private UserDetails resolve(String jwt) {
+		TokenCheckEvent tokenCheck = new TokenCheckEvent();
+		tokenCheck.begin();
+		if (sessions != null && SessionTable.isHandle(jwt)) {
+			/*
+			 * 2 bis - Token opaque : l'identifiant est résolu en O(1) dans la table
+			 * des sessions (hors tas), qui contient déjà le principal : pas de base.
+			 */
+			UserDetails userDetails = sessions.resolve(jwt);
+			tokenCheck.outcome = userDetails == null ? "INVALID" : "SESSION";
+			tokenCheck.commit();
+			return userDetails;
+		}
+
+		/*
+		 * 2 - Validation du JWT : Si un JWT est présent et valide, le nom
+		 * d'utilisateur est extrait du token dans le même parsing
+		 * (toolbox.resolveSubject(jwt) renvoie null pour un token invalide).
+		 */
+		String username = toolbox.resolveSubject(jwt);
+		tokenCheck.outcome = username == null ? "INVALID" : "VALID";
+		tokenCheck.commit();
+		if (username == null) {
+			return null;
+		}
+
+		/*
+		 * 3 - Chargement des détails de l'utilisateur : Les détails de l'utilisateur
+		 * sont chargés en utilisant le nom d'utilisateur extrait.
+		 */
+		UserResolutionEvent resolution = new UserResolutionEvent();
+		resolution.username = username;
+		resolution.begin();
+		try {
+			UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+			resolution.found = true;
+			return userDetails;
+		} finally {
+			resolution.commit();
+		}
+	}
+
 	private String parseJwt(HttpServletRequest request) {
 		/*
 		 * 1 - La méthode parseJwt est appelée pour extraire le JWT de l'en-tête
@@ -100,8 +188,9 @@ public class Watchdog extends OncePerRequestFilter {
 		 */
 		String headerAuth = request.getHeader("Authorization");
 
-		if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-			return headerAuth.substring(7);
+		if (headerAuth != null && headerAuth.length() > BEARER_PREFIX.length()
+				&& headerAuth.startsWith(BEARER_PREFIX)) {
+			return headerAuth.substring(BEARER_PREFIX.length());
 		}
 
 		return null;
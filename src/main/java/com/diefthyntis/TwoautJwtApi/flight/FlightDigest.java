@@ -0,0 +1,265 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/*
+ ================================================================================
+ Résumé d'un enregistrement Java Flight Recorder par étape d'authentification.
+
+ Enregistrement permanent (faible surcoût) :
+    java -XX:StartFlightRecording=disk=true,maxage=6h,settings=default -jar TwoautJwtApi.jar
+ Extraction pendant un incident :
+    jcmd <pid> JFR.dump filename=incident.jfr
+ Analyse :
+    java -cp TwoautJwtApi.jar -Dloader.main=com.diefthyntis.TwoautJwtApi.flight.FlightDigest \
+         org.springframework.boot.loader.launch.PropertiesLauncher incident.jfr
+
+ Pour chaque étape (TokenCheck par résultat, UserResolution, PasswordCheck, SignupStep par étape),
+ affiche le nombre d'événements, les percentiles, un histogramme en puissances de deux de
+ microsecondes, et combien d'événements ont chevauché une pause GC ou attendu un moniteur
+ (jdk.JavaMonitorEnter) sur le même thread.
+
+ Les pauses GC sont triées et fusionnées en intervalles disjoints, les attentes de moniteur
+ triées par thread : chaque événement est ensuite classé par recherche dichotomique, en
+ O(log n) au lieu d'un parcours de toutes les pauses et de toutes les attentes.
+ ================================================================================
+ */
+public final class FlightDigest {
+
+	private static final String PREFIX = "com.diefthyntis.twoaut.";
+
+	private static final int BUCKETS = 32;
+
+	private FlightDigest() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: FlightDigest <recording.jfr>");
+			System.exit(2);
+		}
+		digest(Path.of(args[0]), System.out);
+	}
+
+	public static void digest(Path recording, PrintStream out) throws IOException {
+		Map<String, Stage> stages = new TreeMap<>();
+		Intervals gcPauses = new Intervals();
+		Map<Long, Intervals> monitorWaits = new HashMap<>();
+		List<RecordedEvent> authEvents = new ArrayList<>();
+
+		try (RecordingFile file = new RecordingFile(recording)) {
+			while (file.hasMoreEvents()) {
+				RecordedEvent event = file.readEvent();
+				String type = event.getEventType().getName();
+				if (type.startsWith(PREFIX)) {
+					authEvents.add(event);
+				} else if ("jdk.GCPhasePause".equals(type)) {
+					gcPauses.add(nanos(event.getStartTime()), nanos(event.getEndTime()));
+				} else if ("jdk.JavaMonitorEnter".equals(type) && event.getThread() != null) {
+					monitorWaits.computeIfAbsent(event.getThread().getJavaThreadId(), thread -> new Intervals())
+							.add(nanos(event.getStartTime()), nanos(event.getEndTime()));
+				}
+			}
+		}
+		gcPauses.merge();
+		monitorWaits.values().forEach(Intervals::sortByStart);
+
+		for (RecordedEvent event : authEvents) {
+			Stage stage = stages.computeIfAbsent(stageName(event), Stage::new);
+			long start = nanos(event.getStartTime());
+			long end = nanos(event.getEndTime());
+			RecordedThread thread = event.getThread();
+			Intervals waits = thread == null ? null : monitorWaits.get(thread.getJavaThreadId());
+			stage.add(event.getDuration(), gcPauses.overlaps(start, end),
+					waits != null && waits.containsOneWithin(start, end));
+		}
+
+		if (stages.isEmpty()) {
+			out.println("No TwoautJwtApi events in " + recording);
+			return;
+		}
+		for (Stage stage : stages.values()) {
+			stage.print(out);
+		}
+	}
+
+	private static String stageName(RecordedEvent event) {
+		String name = event.getEventType().getName().substring(PREFIX.length());
+		if (event.hasField("outcome")) {
+			return name + "[" + event.getString("outcome") + "]";
+		}
+		if (event.hasField("step")) {
+			return name + "[" + event.getString("step") + "]";
+		}
+		if (event.hasField("success")) {
+			return name + "[" + (event.getBoolean("success") ? "success" : "failure") + "]";
+		}
+		return name;
+	}
+
+	private static long nanos(Instant instant) {
+		return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+	}
+
+	/*
+	 Intervalles [start, end] en nanosecondes depuis l'epoch, triés par début une fois la lecture finie.
+	 */
+	static final class Intervals {
+		private long[] starts = new long[16];
+
+		private long[] ends = new long[16];
+
+		/* minEnds[i] : plus petite fin parmi les intervalles i et suivants */
+		private long[] minEnds;
+
+		private int count;
+
+		void add(long start, long end) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				ends = Arrays.copyOf(ends, count * 2);
+			}
+			starts[count] = start;
+			ends[count] = end;
+			count++;
+		}
+
+		void sortByStart() {
+			Integer[] order = new Integer[count];
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+			long[] sortedStarts = new long[count];
+			long[] sortedEnds = new long[count];
+			for (int i = 0; i < count; i++) {
+				sortedStarts[i] = starts[order[i]];
+				sortedEnds[i] = ends[order[i]];
+			}
+			starts = sortedStarts;
+			ends = sortedEnds;
+			minEnds = new long[count];
+			long min = Long.MAX_VALUE;
+			for (int i = count - 1; i >= 0; i--) {
+				min = Math.min(min, ends[i]);
+				minEnds[i] = min;
+			}
+		}
+
+		/*
+		 Trie puis fusionne les intervalles qui se chevauchent : débuts et fins deviennent croissants.
+		 */
+		void merge() {
+			sortByStart();
+			int merged = 0;
+			for (int i = 0; i < count; i++) {
+				if (merged > 0 && starts[i] <= ends[merged - 1]) {
+					ends[merged - 1] = Math.max(ends[merged - 1], ends[i]);
+				} else {
+					starts[merged] = starts[i];
+					ends[merged] = ends[i];
+					merged++;
+				}
+			}
+			count = merged;
+		}
+
+		/*
+		 Un intervalle (fusionné) chevauche-t-il ]start, end[ ? Après merge uniquement.
+		 */
+		boolean overlaps(long start, long end) {
+			/* dernier intervalle commencé avant end : le seul candidat, les fins étant croissantes */
+			int last = firstStartAtLeast(end) - 1;
+			return last >= 0 && ends[last] > start;
+		}
+
+		/*
+		 Un intervalle est-il entièrement compris dans [start, end] ? Après sortByStart.
+		 Parmi ceux qui commencent à start ou après, ceux qui commencent après end finissent
+		 aussi après : il suffit que la plus petite fin de ce suffixe soit <= end.
+		 */
+		boolean containsOneWithin(long start, long end) {
+			int first = firstStartAtLeast(start);
+			return first < count && minEnds[first] <= end;
+		}
+
+		private int firstStartAtLeast(long value) {
+			int low = 0;
+			int high = count;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (starts[middle] < value) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+
+	private static final class Stage {
+		private final String name;
+
+		private final long[] histogram = new long[BUCKETS];
+
+		private long[] micros = new long[64];
+
+		private int count;
+
+		private int duringGc;
+
+		private int lockWaits;
+
+		Stage(String name) {
+			this.name = name;
+		}
+
+		void add(Duration duration, boolean overlapsGc, boolean waitedOnMonitor) {
+			long value = duration.toNanos() / 1000;
+			if (count == micros.length) {
+				micros = Arrays.copyOf(micros, count * 2);
+			}
+			micros[count++] = value;
+			histogram[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))]++;
+			if (overlapsGc) {
+				duringGc++;
+			}
+			if (waitedOnMonitor) {
+				lockWaits++;
+			}
+		}
+
+		void print(PrintStream out) {
+			long[] sorted = Arrays.copyOf(micros, count);
+			Arrays.sort(sorted);
+			out.printf("%s: count=%d p50=%dus p90=%dus p99=%dus max=%dus duringGc=%d lockWaits=%d%n", name, count,
+					percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[count - 1],
+					duringGc, lockWaits);
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				if (histogram[bucket] > 0) {
+					long upper = bucket == 0 ? 0 : (1L << bucket) - 1;
+					out.printf("  <= %10dus %8d%n", upper, histogram[bucket]);
+				}
+			}
+		}
+
+		private static long percentile(long[] sorted, double quantile) {
+			return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ Vérification des identifiants de /signin (chargement de l'utilisateur et comparaison BCrypt).
+ */
+@Name("com.diefthyntis.twoaut.PasswordCheck")
+@Label("Password Check")
+@Description("Credential verification by the AuthenticationManager in Doorman.authenticateUser")
+@Category({ "TwoautJwtApi", "Authentication" })
+@StackTrace(false)
+public class PasswordCheckEvent extends jdk.jfr.Event {
+
+	@Label("Username")
+	public String username;
+
+	@Label("Success")
+	public boolean success;
+}
@@ -0,0 +1,32 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ Une étape de Doorman.registerUser : usernameCheck, emailCheck, hash, roles ou save.
+ */
+@Name("com.diefthyntis.twoaut.SignupStep")
+@Label("Signup Step")
+@Description("One database or hashing step of Doorman.registerUser")
+@Category({ "TwoautJwtApi", "Authentication" })
+@StackTrace(false)
+public class SignupStepEvent extends jdk.jfr.Event {
+
+	@Label("Step")
+	public String step;
+
+	@Label("Username")
+	public String username;
+
+	public static SignupStepEvent start(String step, String username) {
+		SignupStepEvent event = new SignupStepEvent();
+		event.step = step;
+		event.username = username;
+		event.begin();
+		return event;
+	}
+}
@@ -0,0 +1,22 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ Lecture et vérification du JWT d'une requête dans Watchdog.
+ outcome : ABSENT (pas de token), VALID ou INVALID.
+ */
+@Name("com.diefthyntis.twoaut.TokenCheck")
+@Label("Token Check")
+@Description("Bearer token parse and signature/expiry verification in Watchdog")
+@Category({ "TwoautJwtApi", "Authentication" })
+@StackTrace(false)
+public class TokenCheckEvent extends jdk.jfr.Event {
+
+	@Label("Outcome")
+	public String outcome;
+}
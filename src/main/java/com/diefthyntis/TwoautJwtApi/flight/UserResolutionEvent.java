@@ -0,0 +1,24 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ Chargement de l'utilisateur désigné par un token valide (UserService) dans Watchdog.
+ */
+@Name("com.diefthyntis.twoaut.UserResolution")
+@Label("User Resolution")
+@Description("Loading the principal of a valid token in Watchdog")
+@Category({ "TwoautJwtApi", "Authentication" })
+@StackTrace(false)
+public class UserResolutionEvent extends jdk.jfr.Event {
+
+	@Label("Username")
+	public String username;
+
+	@Label("Found")
+	public boolean found;
+}
@@ -3,5 +3,15 @@ package com.diefthyntis.TwoautJwtApi.model;
 public enum ERole {
 	ROLE_USER,
     ROLE_MODERATOR,
-    ROLE_ADMIN
+    ROLE_ADMIN,
+    /* compte de service d'une passerelle : introspection des tokens (Gatehouse) */
+    ROLE_GATEWAY;
+
+	/*
+	 * Bit du rôle dans un masque de rôles : l'enum est petit et fermé,
+	 * un int suffit pour représenter n'importe quelle combinaison.
+	 */
+	public int bit() {
+		return 1 << ordinal();
+	}
 }
@@ -3,8 +3,6 @@ package com.diefthyntis.TwoautJwtApi.model;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.springframework.security.core.userdetails.UserDetails;
-
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -41,6 +39,20 @@ public class Internaut {
   @Size(max = 120)
   private String password;
 
+  /*
+   Secret TOTP encodé en base32 : null tant que le second facteur n'est pas activé.
+   */
+  @Size(max = 64)
+  @Column(name = "totp_secret")
+  private String totpSecret;
+
+  /*
+   Secret TOTP proposé par /totp/enroll, pas encore confirmé par un code (/totp/activate).
+   */
+  @Size(max = 64)
+  @Column(name = "totp_pending")
+  private String totpPending;
+
   @ManyToMany(fetch = FetchType.LAZY)
   @JoinTable(  name = "internaut_role", 
         joinColumns = @JoinColumn(name = "internaut_id"), 
@@ -88,6 +100,22 @@ public void setPassword(String password) {
 	this.password = password;
 }
 
+public String getTotpSecret() {
+	return totpSecret;
+}
+
+public void setTotpSecret(String totpSecret) {
+	this.totpSecret = totpSecret;
+}
+
+public String getTotpPending() {
+	return totpPending;
+}
+
+public void setTotpPending(String totpPending) {
+	this.totpPending = totpPending;
+}
+
 public Set<Role> getRoles() {
 	return roles;
 }
@@ -96,11 +124,6 @@ public void setRoles(Set<Role> Roles) {
 	this.roles = Roles;
 }
 
-public static UserDetails build(Internaut internaut) {
-	// TODO Auto-generated method stub
-	return null;
-}
-
   
   // getters and setters
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.diefthyntis.TwoautJwtApi.model;
+
+import jakarta.persistence.*;
+
+/*
+ Événement à transmettre aux systèmes en aval (CRM, audit...), écrit dans la même transaction
+ que la modification qu'il décrit (outbox transactionnelle), puis relayé et supprimé par
+ OutboxRelay. aggregateKey (le nom d'utilisateur) fixe l'ordre de livraison : les événements
+ d'un même utilisateur sont livrés dans l'ordre de leur id.
+ */
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "aggregate_key", length = 20, nullable = false)
+  private String aggregateKey;
+
+  @Column(length = 40, nullable = false)
+  private String type;
+
+  @Column(length = 2000, nullable = false)
+  private String payload;
+
+  @Column(name = "created_at", nullable = false)
+  private long createdAt;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "next_attempt_at", nullable = false)
+  private long nextAttemptAt;
+
+  public OutboxEvent() {
+  }
+
+  public OutboxEvent(String aggregateKey, String type, String payload) {
+    this.aggregateKey = aggregateKey;
+    this.type = type;
+    this.payload = payload;
+    this.createdAt = System.currentTimeMillis();
+    this.nextAttemptAt = createdAt;
+  }
+
+  public OutboxEvent(Long id, String aggregateKey, String type, String payload, long createdAt, int attempts,
+      long nextAttemptAt) {
+    this.id = id;
+    this.aggregateKey = aggregateKey;
+    this.type = type;
+    this.payload = payload;
+    this.createdAt = createdAt;
+    this.attempts = attempts;
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+public Long getId() {
+	return id;
+}
+
+public String getAggregateKey() {
+	return aggregateKey;
+}
+
+public String getType() {
+	return type;
+}
+
+public String getPayload() {
+	return payload;
+}
+
+public long getCreatedAt() {
+	return createdAt;
+}
+
+public int getAttempts() {
+	return attempts;
+}
+
+public long getNextAttemptAt() {
+	return nextAttemptAt;
+}
+}
@@ -0,0 +1,138 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ ================================================================================
+ Lecture en masse des comptes pour l'administration, en JDBC direct (sans entités ni contexte
+ de persistance, dont la taille grandirait avec le nombre de lignes lues).
+
+ page   : pagination par clé (id > afterId ORDER BY id LIMIT n), sans OFFSET : chaque page
+          coûte une descente dans l'index primaire, quelle que soit sa position.
+ export : un seul SELECT parcouru en avant (TYPE_FORWARD_ONLY) avec une taille de fetch, dont
+          chaque utilisateur est remis à l'appelant dès que ses lignes de rôles sont lues.
+          Avec MySQL, le fetch size n'est honoré que par un curseur serveur
+          (useCursorFetch=true, voir application-prod.properties).
+ Dans les deux cas, les lignes d'un utilisateur (une par rôle) sont regroupées à la volée :
+ la mémoire reste constante.
+
+ Avec des shards, chaque shard a ses propres id : la pagination avance shard par shard,
+ et l'export les parcourt l'un après l'autre. Les lectures passent par une transaction en
+ lecture seule (réplica s'il est configuré).
+ ================================================================================
+ */
+@Component
+public class InternautListing {
+
+	private static final String COLUMNS = "select i.id, i.name, i.email, r.name as role from ";
+
+	private static final String ROLES = " left join internaut_role ir on ir.internaut_id = i.id"
+			+ " left join role r on r.id = ir.role_id order by i.id";
+
+	private static final String PAGE = COLUMNS
+			+ "(select id, name, email from internaut where id > ? order by id limit ?) i" + ROLES;
+
+	private static final String EXPORT = COLUMNS + "internaut i" + ROLES;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final JdbcTemplate streamingTemplate;
+
+	private final ShardedInternauts internauts;
+
+	private final TransactionTemplate readOnly;
+
+	public InternautListing(DataSource dataSource, JdbcTemplate jdbcTemplate, ShardedInternauts internauts,
+			PlatformTransactionManager transactionManager,
+			@Value("${opaque.app.admin.exportFetchSize:1000}") int exportFetchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.streamingTemplate = new JdbcTemplate(dataSource);
+		this.streamingTemplate.setFetchSize(exportFetchSize);
+		this.internauts = internauts;
+		this.readOnly = new TransactionTemplate(transactionManager);
+		this.readOnly.setReadOnly(true);
+	}
+
+	public int getShardCount() {
+		return internauts.getShardCount();
+	}
+
+	/*
+	 Au plus limit utilisateurs d'id supérieur à afterId sur le shard donné, triés par id.
+	 */
+	public List<InternautSummary> page(int shard, long afterId, int limit) {
+		List<InternautSummary> page = new ArrayList<>(limit);
+		internauts.onShard(shard, () -> readOnly.execute(status -> {
+			Grouping grouping = new Grouping(page::add);
+			jdbcTemplate.query(PAGE, grouping, afterId, limit);
+			grouping.flush();
+			return null;
+		}));
+		return page;
+	}
+
+	/*
+	 Remet chaque utilisateur de chaque shard à sink, dans l'ordre des id, sans les retenir.
+	 */
+	public void export(Consumer<InternautSummary> sink) {
+		for (int shard = 0; shard < internauts.getShardCount(); shard++) {
+			internauts.onShard(shard, () -> readOnly.execute(status -> {
+				Grouping grouping = new Grouping(sink);
+				streamingTemplate.query(EXPORT, grouping);
+				grouping.flush();
+				return null;
+			}));
+		}
+	}
+
+	/*
+	 Regroupe les lignes consécutives d'un même id (une par rôle) en un InternautSummary.
+	 */
+	private static final class Grouping implements RowCallbackHandler {
+		private final Consumer<InternautSummary> sink;
+		private long id = -1;
+		private String name;
+		private String email;
+		private List<String> roles;
+
+		Grouping(Consumer<InternautSummary> sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			long rowId = rs.getLong(1);
+			if (rowId != id) {
+				flush();
+				id = rowId;
+				name = rs.getString(2);
+				email = rs.getString(3);
+				roles = new ArrayList<>(2);
+			}
+			String role = rs.getString(4);
+			if (role != null) {
+				roles.add(role);
+			}
+		}
+
+		void flush() {
+			if (roles != null) {
+				sink.accept(new InternautSummary(id, name, email, roles));
+				roles = null;
+			}
+		}
+	}
+}
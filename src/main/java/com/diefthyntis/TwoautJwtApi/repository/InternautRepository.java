@@ -3,16 +3,40 @@ package com.diefthyntis.TwoautJwtApi.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.diefthyntis.TwoautJwtApi.model.Internaut;
 
 @Repository
 public interface InternautRepository extends JpaRepository<Internaut, Long> {
+	@Transactional(readOnly = true)
 	Optional<Internaut> findByName(String name);
 
+	  @Transactional(readOnly = true)
 	  Boolean existsByName(String name);
 
+	  @Transactional(readOnly = true)
 	  Boolean existsByEmail(String email);
 
+	  @Query("select i.totpPending from Internaut i where i.name = :name")
+	  Optional<String> findTotpPending(@Param("name") String name);
+
+	  @Modifying
+	  @Transactional
+	  @Query("update Internaut i set i.totpPending = :secret where i.name = :name")
+	  int updateTotpPending(@Param("name") String name, @Param("secret") String secret);
+
+	  /*
+	   Le secret en attente devient le secret actif, seulement s'il n'a pas été remplacé entre-temps.
+	   */
+	  @Modifying
+	  @Transactional
+	  @Query("update Internaut i set i.totpSecret = i.totpPending, i.totpPending = null"
+	      + " where i.name = :name and i.totpPending = :secret")
+	  int activateTotp(@Param("name") String name, @Param("secret") String secret);
+
 }
@@ -0,0 +1,33 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.List;
+
+public class InternautSummary {
+	private final Long id;
+	private final String username;
+	private final String email;
+	private final List<String> roles;
+
+	public InternautSummary(Long id, String username, String email, List<String> roles) {
+		this.id = id;
+		this.username = username;
+		this.email = email;
+		this.roles = roles;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public List<String> getRoles() {
+		return roles;
+	}
+}
@@ -0,0 +1,11 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+}
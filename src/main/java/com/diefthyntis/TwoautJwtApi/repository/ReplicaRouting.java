@@ -0,0 +1,74 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ ================================================================================
+ Routage lecture / écriture entre la base primaire et un réplica.
+
+ Activé uniquement si opaque.app.datasource.replica.url est renseignée :
+    spring.datasource.*                 -> pool primaire (écritures)
+    opaque.app.datasource.replica.*     -> pool réplica (lectures)
+
+ La DataSource exposée à JPA est un LazyConnectionDataSourceProxy : la connexion physique
+ n'est obtenue qu'à la première requête SQL, une fois la transaction démarrée. Une transaction
+ @Transactional(readOnly = true) marque sa connexion en lecture seule, elle est alors servie
+ par le pool réplica ; toutes les autres vont sur le primaire.
+
+ spring.jpa.open-in-view doit valoir false : sinon l'EntityManager de la requête garde la
+ connexion de la première requête en lecture seule (les existsBy* de l'inscription), et le
+ save qui suit partirait sur le réplica. Le démarrage échoue dans ce cas.
+
+ Le retard de réplication juste après une inscription est couvert par RecentWrites :
+ UserService relit un utilisateur fraîchement créé dans une transaction lecture/écriture,
+ donc sur le primaire.
+ ================================================================================
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "opaque.app.datasource.replica", name = "url")
+public class ReplicaRouting {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	@ConfigurationProperties("opaque.app.datasource.replica.hikari")
+	public HikariDataSource replicaDataSource(@Value("${opaque.app.datasource.replica.url}") String url,
+			@Value("${opaque.app.datasource.replica.username:${spring.datasource.username:}}") String username,
+			@Value("${opaque.app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+		HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class).url(url)
+				.username(username).password(password).build();
+		replica.setReadOnly(true);
+		return replica;
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+			@Qualifier("replicaDataSource") DataSource replica,
+			@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+		if (openInView) {
+			throw new IllegalStateException(
+					"Replica routing requires spring.jpa.open-in-view=false, writes would follow the replica connection");
+		}
+		LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+		routing.setReadOnlyDataSource(replica);
+		return routing;
+	}
+}
@@ -0,0 +1,70 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/*
+ Observe chaque appel aux repositories Spring Data (InternautRepository, RoleRepository...).
+
+ Un intercepteur est ajouté au proxy de chaque repository au moment de sa création :
+ chaque méthode appelée produit une observation opaque.repository (repository, method),
+ donc un span enfant de la requête HTTP en cours et un timer.
+ Le registre est résolu paresseusement : ce BeanPostProcessor est instancié très tôt.
+ */
+@Component
+public class RepositoryObservation implements BeanPostProcessor {
+
+	private final ObjectProvider<ObservationRegistry> registry;
+
+	public RepositoryObservation(ObjectProvider<ObservationRegistry> registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+			factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+					(proxyFactory, information) -> proxyFactory.addAdvice(
+							new Interceptor(registry, information.getRepositoryInterface().getSimpleName()))));
+		}
+		return bean;
+	}
+
+	private static final class Interceptor implements MethodInterceptor {
+
+		private final ObjectProvider<ObservationRegistry> registry;
+
+		private final String repository;
+
+		Interceptor(ObjectProvider<ObservationRegistry> registry, String repository) {
+			this.registry = registry;
+			this.repository = repository;
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			String method = invocation.getMethod().getName();
+			Observation observation = Observation
+					.createNotStarted("opaque.repository", registry.getIfAvailable(() -> ObservationRegistry.NOOP))
+					.contextualName(repository + "." + method)
+					.lowCardinalityKeyValue("repository", repository)
+					.lowCardinalityKeyValue("method", method)
+					.start();
+			try (Observation.Scope scope = observation.openScope()) {
+				return invocation.proceed();
+			} catch (Throwable e) {
+				observation.error(e);
+				throw e;
+			} finally {
+				observation.stop();
+			}
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.diefthyntis.TwoautJwtApi.model.ERole;
 import com.diefthyntis.TwoautJwtApi.model.Role;
@@ -12,5 +13,6 @@ import com.diefthyntis.TwoautJwtApi.model.Role;
 
 @Repository
 public interface RoleRepository  extends JpaRepository<Role, Long> {
+	@Transactional(readOnly = true)
 	Optional<Role> findByName(ERole name);
 }
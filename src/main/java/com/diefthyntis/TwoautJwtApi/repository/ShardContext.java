@@ -0,0 +1,36 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.function.Supplier;
+
+/*
+ Shard courant du thread, lu par ShardRoutingDataSource au moment où une connexion est ouverte.
+ Sans shard courant, c'est le shard 0 qui est utilisé : il porte aussi la table globale
+ internaut_email et les données de référence.
+ */
+public final class ShardContext {
+
+	public static final int GLOBAL_SHARD = 0;
+
+	private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+	private ShardContext() {
+	}
+
+	public static Integer current() {
+		return CURRENT.get();
+	}
+
+	public static <T> T call(int shard, Supplier<T> work) {
+		Integer previous = CURRENT.get();
+		CURRENT.set(shard);
+		try {
+			return work.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/*
+ Plages d'id disjointes entre shards : le shard n attribue les id de internaut à partir de
+ n * idSpan + 1. Les id restent ainsi uniques sur l'ensemble des shards, ce qu'attendent les
+ consommateurs indexés par id (SessionTable.revokeUsers, anti-rejeu TOTP, RolesChangedEvent).
+
+ Au démarrage, un shard qui n'a encore attribué aucun id de sa plage voit son compteur
+ d'identité repositionné (MySQL : AUTO_INCREMENT, H2 : RESTART WITH). Un shard qui a déjà
+ attribué des id au-delà de sa plage est signalé mais n'est pas modifié.
+ Une ligne déplacée par ShardRebalancer garde son id, donc une plage inférieure : seuls les
+ id de la plage du shard comptent ici.
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.shards", name = "urls")
+public class ShardIdRanges {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardIdRanges.class);
+
+	private final ShardRing ring;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final long idSpan;
+
+	public ShardIdRanges(ShardRing ring, JdbcTemplate jdbcTemplate,
+			@Value("${opaque.app.shards.idSpan:1099511627776}") long idSpan) {
+		this.ring = ring;
+		this.jdbcTemplate = jdbcTemplate;
+		this.idSpan = idSpan;
+	}
+
+	public long baseOf(int shard) {
+		return shard * idSpan;
+	}
+
+	/*
+	 true si id appartient à une plage supérieure à celle de shard : l'y insérer pousserait
+	 le compteur d'identité du shard (AUTO_INCREMENT) dans la plage d'un autre.
+	 */
+	public boolean isAbove(int shard, long id) {
+		return id >= baseOf(shard) + idSpan;
+	}
+
+	@PostConstruct
+	void align() {
+		for (int shard = 0; shard < ring.getShardCount(); shard++) {
+			int current = shard;
+			ShardContext.call(shard, () -> {
+				align(current);
+				return null;
+			});
+		}
+	}
+
+	private void align(int shard) {
+		long base = baseOf(shard);
+		long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from internaut where id > ?", Long.class,
+				base);
+		if (maxId >= base + idSpan) {
+			logger.error("Shard {} has internaut ids beyond its range ({} >= {})", shard, maxId, base + idSpan);
+			return;
+		}
+		if (maxId > base) {
+			return;
+		}
+
+		String product = jdbcTemplate
+				.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+		long next = base + 1;
+		if ("H2".equals(product)) {
+			jdbcTemplate.execute("alter table internaut alter column id restart with " + next);
+		} else if ("MySQL".equals(product) || "MariaDB".equals(product)) {
+			jdbcTemplate.execute("alter table internaut auto_increment = " + next);
+		} else {
+			logger.warn("Shard {}: cannot move the internaut id counter on {}, ids must start at {}", shard, product, next);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ ================================================================================
+ Outil de rééquilibrage des shards, à lancer après l'ajout d'un shard à opaque.app.shards.urls,
+ en indiquant l'ancien nombre de shards :
+
+    java -jar TwoautJwtApi.jar --opaque.app.shards.rebalance=true --opaque.app.shards.previousCount=N
+
+ Toutes les instances doivent recevoir opaque.app.shards.previousCount avec la nouvelle liste de
+ shards : tant qu'elle est présente, un nom pas encore déplacé est cherché sur son shard de
+ l'ancien anneau (ShardedInternauts), et le trafic continue pendant le déplacement. Elle est
+ retirée une fois l'outil terminé.
+
+ Chaque shard est parcouru par pages (pagination par id, sans OFFSET). Toute ligne internaut dont
+ le nom appartient désormais à un autre shard selon l'anneau courant est relue, copiée sur ce
+ shard avec son id et ses rôles, relue sur la cible, puis supprimée du shard d'origine. L'id ne
+ change pas : sessions opaques (SessionTable.revokeUsers), anti-rejeu TOTP et journal d'audit
+ continuent de désigner le même internaut. Une ligne de la cible portant le même id et le même
+ nom est une copie déjà faite : relancer l'outil après une interruption termine le déplacement
+ sans doublon. Un homonyme sur la cible n'est jamais écrasé, et la ligne d'origine est alors
+ conservée (conflit journalisé). De même pour une ligne dont l'id dépasse la plage de la cible
+ (ShardIdRanges.isAbove), ce qui n'arrive pas quand on ajoute un shard : l'anneau ne déplace
+ alors des noms que vers le nouveau shard, dont la plage est la plus haute.
+ Pendant le déplacement, existsByName consulte la table globale internaut_email, indépendante de
+ l'anneau : un nom en cours de déplacement ne peut pas être réinscrit sur la cible.
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.shards", name = "urls")
+public class ShardRebalancer implements ApplicationRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+	private final ShardRing ring;
+
+	private final ShardIdRanges idRanges;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transaction;
+
+	@Value("${opaque.app.shards.rebalance:false}")
+	private boolean rebalanceOnStartup;
+
+	@Value("${opaque.app.shards.rebalanceBatchSize:500}")
+	private int batchSize;
+
+	public ShardRebalancer(ShardRing ring, ShardIdRanges idRanges, JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager) {
+		this.ring = ring;
+		this.idRanges = idRanges;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transaction = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (rebalanceOnStartup) {
+			if (!ring.isRebalancing()) {
+				logger.warn("Shard rebalancing without opaque.app.shards.previousCount: "
+						+ "internauts not moved yet are not found until they are");
+			}
+			logger.info("Shard rebalancing moved {} internauts, opaque.app.shards.previousCount can be removed",
+					rebalance());
+		}
+	}
+
+	public int rebalance() {
+		int moved = 0;
+		for (int shard = 0; shard < ring.getShardCount(); shard++) {
+			moved += rebalanceShard(shard);
+		}
+		return moved;
+	}
+
+	private int rebalanceShard(int source) {
+		int moved = 0;
+		long lastId = 0;
+		while (true) {
+			long after = lastId;
+			List<Map<String, Object>> page = ShardContext.call(source, () -> jdbcTemplate
+					.queryForList("select * from internaut where id > ? order by id limit ?", after, batchSize));
+			if (page.isEmpty()) {
+				return moved;
+			}
+
+			for (Map<String, Object> row : page) {
+				lastId = ((Number) row.get("id")).longValue();
+				int target = ring.shardFor((String) row.get("name"));
+				if (target != source && move(lastId, source, target)) {
+					moved++;
+				}
+			}
+		}
+	}
+
+	/*
+	 Renvoie false si la ligne est restée sur son shard d'origine (conflit sur la cible).
+	 */
+	boolean move(long id, int source, int target) {
+		/* relue au moment du déplacement, pour copier ses dernières valeurs */
+		List<Map<String, Object>> rows = ShardContext.call(source,
+				() -> jdbcTemplate.queryForList("select * from internaut where id = ?", id));
+		if (rows.isEmpty()) {
+			return false;
+		}
+		Map<String, Object> row = rows.get(0);
+		String name = (String) row.get("name");
+		if (idRanges.isAbove(target, id)) {
+			logger.error("Shard rebalancing: id {} of {} is above the id range of shard {}, kept on shard {}", id, name,
+					target, source);
+			return false;
+		}
+		List<Integer> roleIds = ShardContext.call(source, () -> jdbcTemplate
+				.queryForList("select role_id from internaut_role where internaut_id = ?", Integer.class, id));
+
+		boolean copied = ShardContext.call(target, () -> transaction.execute(status -> {
+			if (!isCopied(id, name)) {
+				if (!jdbcTemplate.queryForList("select id from internaut where name = ? or id = ?", Long.class, name, id)
+						.isEmpty()) {
+					return false;
+				}
+				insertInternaut(row);
+			}
+			for (Integer roleId : roleIds) {
+				jdbcTemplate.update("insert into internaut_role (internaut_id, role_id) select ?, ? where not exists "
+						+ "(select 1 from internaut_role where internaut_id = ? and role_id = ?)", id, roleId, id, roleId);
+			}
+			return true;
+		}));
+		if (!copied) {
+			logger.error("Shard rebalancing: another account named {} exists on shard {}, kept on shard {}", name, target,
+					source);
+			return false;
+		}
+
+		/* relecture après validation : la source n'est supprimée qu'une fois la copie constatée */
+		boolean verified = ShardContext.call(target, () -> isCopied(id, name) && jdbcTemplate
+				.queryForList("select role_id from internaut_role where internaut_id = ?", Integer.class, id)
+				.containsAll(roleIds));
+		if (!verified) {
+			throw new IllegalStateException("Shard rebalancing: copy of " + name + " on shard " + target + " not found");
+		}
+
+		ShardContext.call(source, () -> transaction.execute(status -> {
+			jdbcTemplate.update("delete from internaut_role where internaut_id = ?", id);
+			jdbcTemplate.update("delete from internaut where id = ?", id);
+			return null;
+		}));
+		return true;
+	}
+
+	/*
+	 Le shard courant porte-t-il déjà la copie : même id et même nom ? Les plages d'id étant
+	 disjointes, un homonyme a forcément un autre id et n'est pas une copie.
+	 */
+	private boolean isCopied(long id, String name) {
+		return jdbcTemplate.queryForObject("select count(*) from internaut where id = ? and name = ?", Integer.class, id,
+				name) > 0;
+	}
+
+	/*
+	 Recopie toutes les colonnes, id compris : l'outil suit ainsi les évolutions du schéma sans
+	 modification.
+	 */
+	private void insertInternaut(Map<String, Object> row) {
+		List<String> columns = new ArrayList<>(row.keySet());
+		String sql = "insert into internaut (" + String.join(", ", columns) + ") values ("
+				+ String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+		jdbcTemplate.update(sql, row.values().toArray());
+	}
+}
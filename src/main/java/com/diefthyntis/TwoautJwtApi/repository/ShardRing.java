@@ -0,0 +1,101 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ Anneau de hachage cohérent : associe un nom d'utilisateur à l'un des N shards.
+
+ Chaque shard "shard-i" occupe virtualNodes positions sur l'anneau ; un nom appartient au premier
+ shard rencontré après son empreinte. Les noms des shards ne dépendant que de leur index,
+ passer de N à N+1 shards ne déplace qu'environ 1/(N+1) des utilisateurs (voir ShardRebalancer).
+
+ Pendant ce rééquilibrage, previousCount (opaque.app.shards.previousCount) décrit l'anneau
+ d'avant l'ajout, formé des previousCount premiers shards : previousShardFor indique où un nom
+ pas encore déplacé se trouve toujours.
+ */
+public class ShardRing {
+
+	private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+	private final TreeMap<Long, Integer> previous;
+
+	private final int shardCount;
+
+	public ShardRing(int shardCount, int virtualNodes) {
+		this(shardCount, virtualNodes, 0);
+	}
+
+	/*
+	 previousCount vaut 0 hors rééquilibrage.
+	 */
+	public ShardRing(int shardCount, int virtualNodes, int previousCount) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("At least one shard is required");
+		}
+		if (previousCount < 0 || previousCount >= shardCount) {
+			throw new IllegalArgumentException("The previous shard count must be below the shard count");
+		}
+		this.shardCount = shardCount;
+		fill(ring, shardCount, virtualNodes);
+		if (previousCount > 0) {
+			previous = new TreeMap<>();
+			fill(previous, previousCount, virtualNodes);
+		} else {
+			previous = null;
+		}
+	}
+
+	private static void fill(TreeMap<Long, Integer> ring, int shardCount, int virtualNodes) {
+		for (int shard = 0; shard < shardCount; shard++) {
+			for (int node = 0; node < virtualNodes; node++) {
+				ring.put(hash("shard-" + shard + "#" + node), shard);
+			}
+		}
+	}
+
+	public int shardFor(String username) {
+		return owner(ring, username);
+	}
+
+	/*
+	 Shard de username dans l'anneau précédent, -1 hors rééquilibrage ou si c'est le même shard.
+	 */
+	public int previousShardFor(String username) {
+		if (previous == null) {
+			return -1;
+		}
+		int shard = owner(previous, username);
+		return shard == shardFor(username) ? -1 : shard;
+	}
+
+	public boolean isRebalancing() {
+		return previous != null;
+	}
+
+	private static int owner(TreeMap<Long, Integer> ring, String username) {
+		Map.Entry<Long, Integer> owner = ring.ceilingEntry(hash(username));
+		return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/*
+	 FNV-1a 64 bits suivi d'un mélange final (murmur3 fmix64) pour bien répartir les positions.
+	 */
+	static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
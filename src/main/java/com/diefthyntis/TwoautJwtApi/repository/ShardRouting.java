@@ -0,0 +1,86 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ ================================================================================
+ Répartition (sharding) de la table internaut sur plusieurs bases, par hachage cohérent
+ du nom d'utilisateur (ShardRing).
+
+ Activé uniquement si opaque.app.shards.urls est renseignée (liste d'URL JDBC séparées
+ par des virgules, le shard 0 en premier). Incompatible avec opaque.app.datasource.replica :
+ le démarrage échoue si les deux sont renseignées.
+
+    - le shard 0 porte la table globale internaut_email (unicité des emails entre shards) ;
+    - chaque shard contient le même schéma et la même table role (données de référence) ;
+    - Hibernate ne crée le schéma que sur le shard 0 : les autres sont provisionnés
+      par migration ; ShardIdRanges leur donne des plages d'id disjointes.
+
+ La DataSource exposée à JPA est enveloppée dans un LazyConnectionDataSourceProxy pour que
+ le shard soit choisi à la première requête SQL, une fois ShardContext positionné.
+ ================================================================================
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "opaque.app.shards", name = "urls")
+public class ShardRouting {
+
+	@Bean
+	public ShardRing shardRing(@Value("${opaque.app.shards.urls}") List<String> urls,
+			@Value("${opaque.app.shards.virtualNodes:64}") int virtualNodes,
+			@Value("${opaque.app.shards.previousCount:0}") int previousCount) {
+		return new ShardRing(urls.size(), virtualNodes, previousCount);
+	}
+
+	/*
+	 ReplicaRouting déclarerait une seconde DataSource @Primary : le démarrage échoue ici,
+	 avant la création de toute DataSource, avec un message explicite.
+	 */
+	@Bean
+	static BeanFactoryPostProcessor shardsWithoutReplica(Environment environment) {
+		return beanFactory -> {
+			if (StringUtils.hasText(environment.getProperty("opaque.app.datasource.replica.url"))) {
+				throw new IllegalStateException(
+						"opaque.app.shards.urls and opaque.app.datasource.replica.url cannot be combined");
+			}
+		};
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Value("${opaque.app.shards.urls}") List<String> urls,
+			@Value("${spring.datasource.username:}") String username,
+			@Value("${spring.datasource.password:}") String password,
+			@Value("${opaque.app.shards.poolSize:10}") int poolSize) {
+		Map<Object, Object> shards = new HashMap<>();
+		for (int shard = 0; shard < urls.size(); shard++) {
+			HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+					.url(urls.get(shard).trim()).username(username).password(password).build();
+			pool.setPoolName("shard-" + shard);
+			pool.setMaximumPoolSize(poolSize);
+			shards.put(shard, pool);
+		}
+
+		ShardRoutingDataSource routing = new ShardRoutingDataSource();
+		routing.setTargetDataSources(shards);
+		routing.setDefaultTargetDataSource(shards.get(ShardContext.GLOBAL_SHARD));
+		routing.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+}
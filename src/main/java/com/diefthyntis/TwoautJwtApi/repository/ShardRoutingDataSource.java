@@ -0,0 +1,15 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/*
+ Choisit le pool du shard courant (ShardContext) à l'ouverture de chaque connexion.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		Integer shard = ShardContext.current();
+		return shard != null ? shard : ShardContext.GLOBAL_SHARD;
+	}
+}
@@ -0,0 +1,203 @@
+package com.diefthyntis.TwoautJwtApi.repository;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diefthyntis.TwoautJwtApi.model.Internaut;
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+
+/*
+ Point d'entrée des opérations sur internaut qui dépendent du shard.
+
+ Sans shards configurés (pas de bean ShardRing), chaque méthode délègue directement
+ à InternautRepository. Avec des shards :
+    findByName / save /
+    findTotpPending / updateTotpPending /
+    activateTotp                      -> shard du nom d'utilisateur (ShardRing) ;
+    existsByName / existsByEmail      -> table globale internaut_email du shard 0, indépendante
+                                         de l'anneau (un rééquilibrage ne libère aucun nom) ;
+    save                              -> réserve d'abord l'email et le nom dans internaut_email,
+                                         puis enregistre l'utilisateur sur son shard
+                                         (la réservation est annulée si cet enregistrement échoue).
+ save écrit aussi, dans la même transaction, l'éventuel événement d'outbox (table outbox_event
+ du shard de l'utilisateur, relayée par OutboxRelay).
+
+ Pendant un rééquilibrage (opaque.app.shards.previousCount), un nom pas encore déplacé est
+ toujours sur son shard de l'ancien anneau. Les lectures et modifications par nom y sont
+ d'abord faites, puis sur le shard actuel si rien n'y a été trouvé : ShardRebalancer valide la
+ copie avant de supprimer l'origine, donc un nom absent de l'ancien shard est déjà sur le
+ nouveau. Une modification faite sur l'origine entre la copie et sa suppression est perdue.
+ */
+@Component
+public class ShardedInternauts {
+
+	private final InternautRepository internautRepository;
+
+	private final OutboxRepository outboxRepository;
+
+	private final ShardRing ring;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transaction;
+
+	public ShardedInternauts(InternautRepository internautRepository, OutboxRepository outboxRepository,
+			ObjectProvider<ShardRing> ring, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+		this.internautRepository = internautRepository;
+		this.outboxRepository = outboxRepository;
+		this.ring = ring.getIfAvailable();
+		this.jdbcTemplate = jdbcTemplate;
+		this.transaction = new TransactionTemplate(transactionManager);
+	}
+
+	public boolean isSharded() {
+		return ring != null;
+	}
+
+	/*
+	 Exécute work sur le shard de username : toute transaction ouverte dans work y est liée.
+	 */
+	public <T> T forUser(String username, Supplier<T> work) {
+		if (ring == null) {
+			return work.get();
+		}
+		return ShardContext.call(ring.shardFor(username), work);
+	}
+
+	/*
+	 Comme forUser, mais pendant un rééquilibrage work est d'abord exécuté sur le shard de
+	 l'ancien anneau, puis sur le shard actuel si missed(résultat).
+	 */
+	public <T> T forUser(String username, Supplier<T> work, Predicate<T> missed) {
+		if (ring == null) {
+			return work.get();
+		}
+		int previous = ring.previousShardFor(username);
+		if (previous >= 0) {
+			T found = ShardContext.call(previous, work);
+			if (!missed.test(found)) {
+				return found;
+			}
+		}
+		return ShardContext.call(ring.shardFor(username), work);
+	}
+
+	public int shardOf(String username) {
+		return ring == null ? ShardContext.GLOBAL_SHARD : ring.shardFor(username);
+	}
+
+	/*
+	 Shard de username dans l'anneau d'avant le rééquilibrage en cours, -1 s'il n'y en a pas
+	 ou si c'est le même shard.
+	 */
+	public int previousShardOf(String username) {
+		return ring == null ? -1 : ring.previousShardFor(username);
+	}
+
+	public int getShardCount() {
+		return ring == null ? 1 : ring.getShardCount();
+	}
+
+	/*
+	 Exécute work sur un shard donné (0 à getShardCount() - 1), pour les parcours de tous les shards.
+	 */
+	public <T> T onShard(int shard, Supplier<T> work) {
+		if (ring == null) {
+			return work.get();
+		}
+		return ShardContext.call(shard, work);
+	}
+
+	public Optional<Internaut> findByName(String name) {
+		return forUser(name, () -> internautRepository.findByName(name), Optional::isEmpty);
+	}
+
+	public boolean existsByName(String name) {
+		if (ring == null) {
+			return internautRepository.existsByName(name);
+		}
+		return ShardContext.call(ShardContext.GLOBAL_SHARD, () -> jdbcTemplate
+				.queryForObject("select count(*) from internaut_email where name = ?", Integer.class, name) > 0);
+	}
+
+	public boolean existsByEmail(String email) {
+		if (ring == null) {
+			return internautRepository.existsByEmail(email);
+		}
+		return ShardContext.call(ShardContext.GLOBAL_SHARD, () -> jdbcTemplate
+				.queryForObject("select count(*) from internaut_email where email = ?", Integer.class, email) > 0);
+	}
+
+	/*
+	 Lu dans une transaction lecture/écriture, donc sur le primaire : le secret vient d'être écrit.
+	 */
+	public String findTotpPending(String name) {
+		return forUser(name, () -> transaction.execute(status -> internautRepository.findTotpPending(name).orElse(null)),
+				Objects::isNull);
+	}
+
+	public int updateTotpPending(String name, String secret) {
+		return forUser(name, () -> internautRepository.updateTotpPending(name, secret), rows -> rows == 0);
+	}
+
+	public int activateTotp(String name, String secret) {
+		return forUser(name, () -> internautRepository.activateTotp(name, secret), rows -> rows == 0);
+	}
+
+	public Internaut save(Internaut internaut) {
+		return save(internaut, null);
+	}
+
+	/*
+	 Enregistre internaut et, dans la même transaction sur son shard, l'événement d'outbox
+	 construit à partir de l'entité enregistrée (id attribué) : les deux sont validés ou
+	 annulés ensemble. event peut être null.
+	 */
+	public Internaut save(Internaut internaut, Function<Internaut, OutboxEvent> event) {
+		if (ring == null) {
+			return transaction.execute(status -> saveWithEvent(internaut, event));
+		}
+
+		claimEmail(internaut);
+		try {
+			return forUser(internaut.getName(), () -> transaction.execute(status -> saveWithEvent(internaut, event)));
+		} catch (RuntimeException e) {
+			releaseEmail(internaut);
+			throw e;
+		}
+	}
+
+	private Internaut saveWithEvent(Internaut internaut, Function<Internaut, OutboxEvent> event) {
+		Internaut saved = internautRepository.save(internaut);
+		if (event != null) {
+			outboxRepository.save(event.apply(saved));
+		}
+		return saved;
+	}
+
+	private void claimEmail(Internaut internaut) {
+		try {
+			ShardContext.call(ShardContext.GLOBAL_SHARD, () -> jdbcTemplate.update(
+					"insert into internaut_email (email, name) values (?, ?)", internaut.getEmail(), internaut.getName()));
+		} catch (DuplicateKeyException e) {
+			throw new DataIntegrityViolationException(
+					"Email or username is already in use: " + internaut.getEmail() + ", " + internaut.getName(), e);
+		}
+	}
+
+	private void releaseEmail(Internaut internaut) {
+		ShardContext.call(ShardContext.GLOBAL_SHARD, () -> jdbcTemplate.update(
+				"delete from internaut_email where email = ? and name = ?", internaut.getEmail(), internaut.getName()));
+	}
+}
@@ -0,0 +1,48 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+
+/*
+ Création du premier administrateur, l'inscription publique ne donnant que ROLE_USER.
+
+ Le compte s'inscrit normalement, puis l'exploitant démarre l'application avec
+    --opaque.app.admin.bootstrap=alice
+ ROLE_ADMIN est alors attribué aux comptes existants de la liste (les noms inconnus sont ignorés).
+ La propriété est à retirer ensuite : les administrateurs suivants passent par /api/admin/roles/grant.
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.admin", name = "bootstrap")
+public class AdminBootstrap implements ApplicationRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdminBootstrap.class);
+
+	private final RoleAssignments roleAssignments;
+
+	private final List<String> usernames;
+
+	public AdminBootstrap(RoleAssignments roleAssignments,
+			@Value("${opaque.app.admin.bootstrap}") List<String> usernames) {
+		this.roleAssignments = roleAssignments;
+		this.usernames = usernames.stream().map(String::trim).filter(name -> !name.isEmpty()).toList();
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (usernames.isEmpty()) {
+			return;
+		}
+		RoleChangeReport report = roleAssignments.grant(ERole.ROLE_ADMIN, usernames);
+		logger.warn("Admin bootstrap: ROLE_ADMIN granted to {} of {} listed accounts, remove opaque.app.admin.bootstrap",
+				report.getChanged(), usernames.size());
+	}
+}
@@ -0,0 +1,124 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ Ensemble borné de noms d'utilisateurs qui expirent après ttlMs.
+
+ Les noms sont répartis en stripes verrous indépendants, chacun étant une LinkedHashMap en
+ ordre d'insertion (un nom ajouté de nouveau repasse en queue). Tous les noms ayant la même
+ durée de vie, la tête est toujours la prochaine à expirer : add retire les têtes expirées
+ puis, si la stripe est pleine, la plus ancienne. Chaque éviction est en O(1) et la mémoire
+ reste bornée à maxEntries quel que soit le trafic.
+
+ Une recherche qui conclut à l'absence d'un nom peut se terminer juste après que remove a été
+ appelé pour ce nom (inscription) : elle lit ticket avant de commencer puis appelle
+ add(name, ticket), refusé si la stripe du nom a vu un remove entre-temps.
+ */
+public class ExpiringNames {
+
+	private static final int MAX_STRIPES = 16;
+
+	private static final long ANY = -1;
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	private final long ttlMs;
+
+	public ExpiringNames(long ttlMs, int maxEntries) {
+		int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxEntries)));
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxEntries / count));
+		}
+		this.mask = count - 1;
+		this.ttlMs = ttlMs;
+	}
+
+	public void add(String name) {
+		put(name, ANY, System.currentTimeMillis());
+	}
+
+	/*
+	 Renvoie false, sans rien retenir, si remove a été appelé depuis la lecture de ticket.
+	 */
+	public boolean add(String name, long ticket) {
+		return put(name, ticket, System.currentTimeMillis());
+	}
+
+	public long ticket(String name) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			return stripe.removals;
+		}
+	}
+
+	public boolean contains(String name) {
+		return contains(name, System.currentTimeMillis());
+	}
+
+	public void remove(String name) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			stripe.removals++;
+			stripe.remove(name);
+		}
+	}
+
+	boolean put(String name, long ticket, long now) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			if (ticket != ANY && ticket != stripe.removals) {
+				return false;
+			}
+			stripe.remove(name);
+			stripe.put(name, now + ttlMs);
+			/* la plus ancienne au-delà de capacity est retirée par removeEldestEntry */
+			Iterator<Long> eldest = stripe.values().iterator();
+			while (eldest.hasNext() && eldest.next() <= now) {
+				eldest.remove();
+			}
+			return stripe.containsKey(name);
+		}
+	}
+
+	boolean contains(String name, long now) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			Long expiry = stripe.get(name);
+			if (expiry == null) {
+				return false;
+			}
+			if (expiry <= now) {
+				stripe.remove(name);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private Stripe stripe(String name) {
+		int h = name.hashCode();
+		return stripes[(h ^ (h >>> 16)) & mask];
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends LinkedHashMap<String, Long> {
+		private final int capacity;
+
+		private long removals;
+
+		Stripe(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			return size() > capacity;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ Destination fichier (opaque.app.outbox.sink=file) : chaque lot est ajouté en NDJSON
+ (id, key, type, createdAt, payload) à opaque.app.outbox.file, puis forcé sur disque avant
+ d'être acquitté. Le lot est écrit en entier ou pas du tout.
+ */
+@Component
+@ConditionalOnProperty(name = "opaque.app.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+	private final FileChannel channel;
+
+	private final ObjectMapper objectMapper;
+
+	public FileOutboxSink(@Value("${opaque.app.outbox.file:outbox.ndjson}") String file, ObjectMapper objectMapper)
+			throws IOException {
+		this.channel = FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public Set<Long> publish(List<OutboxEvent> batch) throws IOException {
+		ByteArrayOutputStream lines = new ByteArrayOutputStream(batch.size() * 256);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(lines)) {
+			generator.setRootValueSeparator(null);
+			for (OutboxEvent event : batch) {
+				generator.writeStartObject();
+				generator.writeNumberField("id", event.getId());
+				generator.writeStringField("key", event.getAggregateKey());
+				generator.writeStringField("type", event.getType());
+				generator.writeNumberField("createdAt", event.getCreatedAt());
+				generator.writeFieldName("payload");
+				generator.writeRawValue(event.getPayload());
+				generator.writeEndObject();
+				generator.writeRaw('\n');
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+		synchronized (channel) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		return Set.of();
+	}
+
+	@PreDestroy
+	void close() throws IOException {
+		channel.close();
+	}
+}
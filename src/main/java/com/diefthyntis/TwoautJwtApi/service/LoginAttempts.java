@@ -0,0 +1,139 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ Échecs de connexion par nom d'utilisateur, avec verrouillage temporaire.
+
+ Après threshold échecs dans une fenêtre de windowMs, le compte est verrouillé durationMs :
+ UserService.loadForPasswordCheck le traite alors comme un nom inconnu (même hash BCrypt
+ factice, même réponse). Une connexion réussie efface le compteur.
+
+ La table est découpée en stripes verrous indépendants (le nom choisit son stripe), chacun
+ étant une LinkedHashMap en ordre d'accès bornée à maxEntries / stripes : au-delà, l'entrée
+ non verrouillée la moins récemment touchée est oubliée. Un verrou n'est jamais oublié avant
+ son expiration : une rafale de noms inventés ne peut pas déverrouiller un compte. Si un
+ stripe ne contient plus que des comptes verrouillés, les nouveaux noms n'y sont pas comptés
+ jusqu'à la première expiration. La mémoire reste bornée quel que soit le nombre de noms
+ essayés. Rien n'est persisté : un redémarrage remet les compteurs à zéro.
+ */
+@Component
+public class LoginAttempts {
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	private final int threshold;
+
+	private final long windowMs;
+
+	private final long durationMs;
+
+	public LoginAttempts(@Value("${opaque.app.lockout.threshold:5}") int threshold,
+			@Value("${opaque.app.lockout.windowMs:900000}") long windowMs,
+			@Value("${opaque.app.lockout.durationMs:900000}") long durationMs,
+			@Value("${opaque.app.lockout.stripes:64}") int stripes,
+			@Value("${opaque.app.lockout.maxEntries:100000}") int maxEntries) {
+		int count = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxEntries / count));
+		}
+		this.mask = count - 1;
+		this.threshold = threshold;
+		this.windowMs = windowMs;
+		this.durationMs = durationMs;
+	}
+
+	public boolean isLocked(String name) {
+		return isLocked(name, System.currentTimeMillis());
+	}
+
+	/*
+	 Renvoie true si cet échec verrouille le compte.
+	 */
+	public boolean failed(String name) {
+		return failed(name, System.currentTimeMillis());
+	}
+
+	public void succeeded(String name) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			stripe.remove(name);
+		}
+	}
+
+	boolean isLocked(String name, long now) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			Attempts attempts = stripe.get(name);
+			return attempts != null && attempts.lockedUntil > now;
+		}
+	}
+
+	boolean failed(String name, long now) {
+		Stripe stripe = stripe(name);
+		synchronized (stripe) {
+			Attempts attempts = stripe.get(name);
+			if (attempts == null) {
+				if (stripe.size() >= stripe.capacity && !stripe.evictUnlocked(now)) {
+					return false;
+				}
+				attempts = new Attempts();
+				stripe.put(name, attempts);
+			}
+			if (attempts.lockedUntil > now) {
+				return false;
+			}
+			if (now - attempts.windowStart >= windowMs) {
+				attempts.windowStart = now;
+				attempts.failures = 0;
+			}
+			if (++attempts.failures < threshold) {
+				return false;
+			}
+			attempts.lockedUntil = now + durationMs;
+			attempts.failures = 0;
+			return true;
+		}
+	}
+
+	private Stripe stripe(String name) {
+		int h = name.hashCode();
+		return stripes[(h ^ (h >>> 16)) & mask];
+	}
+
+	private static final class Attempts {
+		long windowStart;
+		int failures;
+		long lockedUntil;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends LinkedHashMap<String, Attempts> {
+		private final int capacity;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		/*
+		 Retire l'entrée non verrouillée la moins récemment touchée, false s'il n'y en a pas.
+		 */
+		boolean evictUnlocked(long now) {
+			for (Iterator<Attempts> it = values().iterator(); it.hasNext();) {
+				if (it.next().lockedUntil <= now) {
+					it.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
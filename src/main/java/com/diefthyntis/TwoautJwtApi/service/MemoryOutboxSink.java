@@ -0,0 +1,62 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+
+/*
+ Destination en mémoire (opaque.app.outbox.sink=memory), pour les tests et le développement.
+ failNext simule une indisponibilité du destinataire ; refuse fait rejeter chaque événement d'un utilisateur.
+ */
+@Component
+@ConditionalOnProperty(name = "opaque.app.outbox.sink", havingValue = "memory")
+public class MemoryOutboxSink implements OutboxSink {
+
+	private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final Set<String> refusedKeys = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public Set<Long> publish(List<OutboxEvent> batch) {
+		if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+			throw new IllegalStateException("Simulated outbox sink failure");
+		}
+		Set<Long> rejected = new HashSet<>();
+		for (OutboxEvent event : batch) {
+			if (refusedKeys.contains(event.getAggregateKey())) {
+				rejected.add(event.getId());
+			} else {
+				events.add(event);
+			}
+		}
+		return rejected;
+	}
+
+	public List<OutboxEvent> getEvents() {
+		return events;
+	}
+
+	public void failNext(int batches) {
+		failures.set(batches);
+	}
+
+	public void refuse(String aggregateKey) {
+		refusedKeys.add(aggregateKey);
+	}
+
+	public void reset() {
+		events.clear();
+		failures.set(0);
+		refusedKeys.clear();
+	}
+}
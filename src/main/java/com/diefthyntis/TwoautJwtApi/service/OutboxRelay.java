@@ -0,0 +1,230 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import com.diefthyntis.TwoautJwtApi.model.Internaut;
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+import com.diefthyntis.TwoautJwtApi.repository.ShardedInternauts;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ ================================================================================
+ Outbox transactionnelle des inscriptions (opaque.app.outbox.sink = memory, file, ou tout autre
+ nom accompagné d'un bean OutboxSink).
+
+ Doorman.registerUser passe registered à ShardedInternauts.save : la ligne outbox_event est
+ écrite dans la transaction qui enregistre l'utilisateur, sans appel réseau pendant l'inscription.
+
+ Un thread de fond relaie ensuite la table, shard par shard, toutes les pollMs :
+    lecture des batchSize plus anciennes lignes dues (next_attempt_at <= maintenant) qu'aucune
+    ligne antérieure du même utilisateur (aggregate_key) en attente de nouvelle tentative ne
+    précède : les événements d'un utilisateur sont livrés dans l'ordre, et des lignes en attente
+    ne masquent jamais les plus récentes ;
+    un seul événement par utilisateur et par lot, remis à OutboxSink.publish, qui indique les
+    événements refusés ; les acceptés sont supprimés ;
+    si publish lève une exception, les événements du lot sont représentés un par un, pour qu'un
+    seul événement refusé n'entraîne pas tout le lot ;
+    un événement refusé est reprogrammé avec un délai exponentiel (retryMs doublé à chaque
+    tentative, borné par maxRetryMs) ; après maxAttempts tentatives il est mis au rebut
+    (next_attempt_at = DEAD) : il n'est plus relu et ne bloque plus les suivants du même
+    utilisateur. Pour le rejouer : update outbox_event set attempts = 0, next_attempt_at = 0.
+ Un lot plein est suivi aussitôt du suivant. La livraison est « au moins une fois » ; un seul
+ relais doit tourner par base (opaque.app.outbox.relay=false sur les autres instances).
+ ================================================================================
+ */
+@Component
+@ConditionalOnProperty(prefix = "opaque.app.outbox", name = "sink")
+public class OutboxRelay {
+
+	private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+	public static final String INTERNAUT_REGISTERED = "InternautRegistered";
+
+	/* next_attempt_at d'un événement mis au rebut */
+	public static final long DEAD = Long.MAX_VALUE;
+
+	private static final String PENDING = "select e.id, e.aggregate_key, e.type, e.payload, e.created_at, e.attempts,"
+			+ " e.next_attempt_at from outbox_event e where e.next_attempt_at <= ? and not exists (select 1 from outbox_event p"
+			+ " where p.aggregate_key = e.aggregate_key and p.id < e.id and p.next_attempt_at > ? and p.next_attempt_at < "
+			+ DEAD + ") order by e.id limit ?";
+
+	private static final RowMapper<OutboxEvent> ROW = (rs, rowNum) -> new OutboxEvent(rs.getLong(1), rs.getString(2),
+			rs.getString(3), rs.getString(4), rs.getLong(5), rs.getInt(6), rs.getLong(7));
+
+	private final OutboxSink sink;
+
+	private final ShardedInternauts internauts;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	@Value("${opaque.app.outbox.relay:true}")
+	private boolean relayEnabled;
+
+	@Value("${opaque.app.outbox.pollMs:500}")
+	private long pollMs;
+
+	@Value("${opaque.app.outbox.batchSize:100}")
+	private int batchSize;
+
+	@Value("${opaque.app.outbox.retryMs:1000}")
+	private long retryMs;
+
+	@Value("${opaque.app.outbox.maxRetryMs:300000}")
+	private long maxRetryMs;
+
+	@Value("${opaque.app.outbox.maxAttempts:10}")
+	private int maxAttempts;
+
+	private ScheduledExecutorService relay;
+
+	public OutboxRelay(OutboxSink sink, ShardedInternauts internauts, JdbcTemplate jdbcTemplate,
+			ObjectMapper objectMapper) {
+		this.sink = sink;
+		this.internauts = internauts;
+		this.jdbcTemplate = jdbcTemplate;
+		this.objectMapper = objectMapper;
+	}
+
+	@PostConstruct
+	void start() {
+		if (!relayEnabled) {
+			return;
+		}
+		relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "outbox-relay");
+			thread.setDaemon(true);
+			return thread;
+		});
+		relay.scheduleWithFixedDelay(this::drainSafely, pollMs, pollMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void stop() {
+		if (relay != null) {
+			relay.shutdownNow();
+		}
+	}
+
+	/*
+	 Événement d'inscription, construit dans la transaction de l'enregistrement (id attribué).
+	 */
+	public OutboxEvent registered(Internaut internaut) {
+		Map<String, Object> payload = new LinkedHashMap<>();
+		payload.put("id", internaut.getId());
+		payload.put("username", internaut.getName());
+		payload.put("email", internaut.getEmail());
+		payload.put("roles", internaut.getRoles().stream().map(role -> role.getName().name()).sorted().toList());
+		try {
+			return new OutboxEvent(internaut.getName(), INTERNAUT_REGISTERED, objectMapper.writeValueAsString(payload));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Cannot serialize outbox payload", e);
+		}
+	}
+
+	private void drainSafely() {
+		try {
+			while (drain() == batchSize) {
+				// lot plein : d'autres événements attendent
+			}
+		} catch (RuntimeException e) {
+			logger.error("Outbox relay failed: {}", e.getMessage());
+		}
+	}
+
+	/*
+	 Un passage sur tous les shards ; renvoie la taille du plus grand lot lu.
+	 */
+	int drain() {
+		int largest = 0;
+		for (int shard = 0; shard < internauts.getShardCount(); shard++) {
+			largest = Math.max(largest, internauts.onShard(shard, this::drainShard));
+		}
+		return largest;
+	}
+
+	private int drainShard() {
+		long now = System.currentTimeMillis();
+		List<OutboxEvent> pending = jdbcTemplate.query(PENDING, ROW, now, now, batchSize);
+		Set<String> keys = new HashSet<>();
+		List<OutboxEvent> batch = new ArrayList<>(pending.size());
+		for (OutboxEvent event : pending) {
+			/* le suivant du même utilisateur attend la livraison de celui-ci (passage suivant) */
+			if (keys.add(event.getAggregateKey())) {
+				batch.add(event);
+			}
+		}
+		if (batch.isEmpty()) {
+			return 0;
+		}
+
+		Set<Long> rejected;
+		try {
+			rejected = sink.publish(batch);
+		} catch (Exception e) {
+			logger.warn("Outbox delivery of {} events failed, retrying them one by one: {}", batch.size(), e.getMessage());
+			rejected = publishEach(batch);
+		}
+
+		List<Object> delivered = new ArrayList<>(batch.size());
+		for (OutboxEvent event : batch) {
+			if (rejected.contains(event.getId())) {
+				reschedule(event, now);
+			} else {
+				delivered.add(event.getId());
+			}
+		}
+		if (!delivered.isEmpty()) {
+			jdbcTemplate.update("delete from outbox_event where id in ("
+					+ String.join(",", Collections.nCopies(delivered.size(), "?")) + ")", delivered.toArray());
+		}
+		return pending.size();
+	}
+
+	private Set<Long> publishEach(List<OutboxEvent> batch) {
+		Set<Long> rejected = new HashSet<>();
+		for (OutboxEvent event : batch) {
+			try {
+				rejected.addAll(sink.publish(List.of(event)));
+			} catch (Exception e) {
+				rejected.add(event.getId());
+			}
+		}
+		return rejected;
+	}
+
+	private void reschedule(OutboxEvent event, long now) {
+		long next;
+		if (event.getAttempts() + 1 >= maxAttempts) {
+			logger.error("Outbox event {} ({} for {}) rejected {} times, set aside", event.getId(), event.getType(),
+					event.getAggregateKey(), event.getAttempts() + 1);
+			next = DEAD;
+		} else {
+			next = now + Math.min(maxRetryMs, retryMs << Math.min(20, event.getAttempts()));
+		}
+		jdbcTemplate.update("update outbox_event set attempts = attempts + 1, next_attempt_at = ? where id = ?", next,
+				event.getId());
+	}
+}
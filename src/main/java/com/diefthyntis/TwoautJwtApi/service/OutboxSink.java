@@ -0,0 +1,19 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.List;
+import java.util.Set;
+
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+
+/*
+ Destination des événements d'outbox (CRM, bus de messages...), appelée par OutboxRelay.
+
+ publish reçoit un lot dans l'ordre des id (au plus un événement par aggregate_key) et renvoie
+ les id des événements refusés, vide si tout le lot est accepté : seuls ceux-là seront représentés
+ plus tard. Une exception signifie qu'aucun événement du lot n'a été accepté. La livraison est
+ « au moins une fois » : un destinataire doit ignorer un id déjà reçu.
+ */
+public interface OutboxSink {
+
+	Set<Long> publish(List<OutboxEvent> batch) throws Exception;
+}
@@ -0,0 +1,34 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ Noms d'utilisateurs écrits récemment sur la base primaire.
+
+ Tant que la fenêtre opaque.app.datasource.replica.stickyMs n'est pas écoulée, un réplica
+ peut ne pas encore contenir l'utilisateur : UserService le relit alors sur le primaire
+ (lecture après écriture).
+ */
+@Component
+public class RecentWrites {
+
+	private final ExpiringNames names;
+
+	public RecentWrites(@Value("${opaque.app.datasource.replica.stickyMs:5000}") long stickyMs,
+			@Value("${opaque.app.datasource.replica.maxTrackedWrites:100000}") int maxEntries) {
+		this.names = new ExpiringNames(stickyMs, maxEntries);
+	}
+
+	public void mark(String username) {
+		names.add(username);
+	}
+
+	public boolean isFresh(String username) {
+		return names.contains(username);
+	}
+
+	public void forget(String username) {
+		names.remove(username);
+	}
+}
@@ -0,0 +1,126 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.repository.ShardedInternauts;
+
+/*
+ ================================================================================
+ Attribution et retrait d'un rôle à un ensemble de comptes, en SQL ensembliste.
+
+ Passer par Internaut.roles chargerait chaque utilisateur et ses lignes de jointure.
+ Ici, les noms sont groupés par shard puis découpés en lots de chunkSize ; chaque lot est
+ une transaction de deux requêtes sur internaut_role :
+    select des id des comptes du lot (where name in (...)) ;
+    grant  : insert ... select id, role.id ... where not exists (ligne déjà présente) ;
+    revoke : delete ... where role_id = (role) and internaut_id in (...).
+ Les compteurs renvoyés additionnent les lignes réellement insérées ou supprimées.
+
+ Pendant un rééquilibrage des shards, un nom est cherché sur son shard actuel et sur celui de
+ l'ancien anneau : il n'est trouvé que là où il se trouve.
+
+ Après chaque lot validé qui a modifié des lignes, un RolesChangedEvent est publié
+ (révocation des sessions opaques, relecture sur le primaire).
+ ================================================================================
+ */
+@Service
+public class RoleAssignments {
+
+	private static final String GRANT = "insert into internaut_role (internaut_id, role_id)"
+			+ " select i.id, r.id from internaut i join role r on r.name = ? where i.id in (%s)"
+			+ " and not exists (select 1 from internaut_role ir where ir.internaut_id = i.id and ir.role_id = r.id)";
+
+	private static final String REVOKE = "delete from internaut_role"
+			+ " where role_id in (select id from role where name = ?) and internaut_id in (%s)";
+
+	private static final String MATCH = "select id from internaut where name in (%s)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final ShardedInternauts internauts;
+
+	private final ApplicationEventPublisher events;
+
+	private final TransactionTemplate transaction;
+
+	private final int chunkSize;
+
+	public RoleAssignments(JdbcTemplate jdbcTemplate, ShardedInternauts internauts, ApplicationEventPublisher events,
+			PlatformTransactionManager transactionManager,
+			@Value("${opaque.app.admin.roleChunkSize:500}") int chunkSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.internauts = internauts;
+		this.events = events;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	public RoleChangeReport grant(ERole role, Collection<String> usernames) {
+		return apply(role, usernames, true);
+	}
+
+	public RoleChangeReport revoke(ERole role, Collection<String> usernames) {
+		return apply(role, usernames, false);
+	}
+
+	private RoleChangeReport apply(ERole role, Collection<String> usernames, boolean grant) {
+		Set<String> distinct = new LinkedHashSet<>(usernames);
+		Map<Integer, List<String>> byShard = new TreeMap<>();
+		for (String name : distinct) {
+			byShard.computeIfAbsent(internauts.shardOf(name), shard -> new ArrayList<>()).add(name);
+			int previous = internauts.previousShardOf(name);
+			if (previous >= 0) {
+				byShard.computeIfAbsent(previous, shard -> new ArrayList<>()).add(name);
+			}
+		}
+
+		int matched = 0;
+		int changed = 0;
+		for (Map.Entry<Integer, List<String>> shard : byShard.entrySet()) {
+			List<String> names = shard.getValue();
+			for (int from = 0; from < names.size(); from += chunkSize) {
+				List<String> chunk = names.subList(from, Math.min(names.size(), from + chunkSize));
+				List<Long> ids = new ArrayList<>(chunk.size());
+				int rows = internauts.onShard(shard.getKey(), () -> transaction.execute(status -> {
+					ids.addAll(jdbcTemplate.queryForList(String.format(MATCH, placeholders(chunk.size())), Long.class,
+							chunk.toArray()));
+					if (ids.isEmpty()) {
+						return 0;
+					}
+					Object[] args = new Object[ids.size() + 1];
+					args[0] = role.name();
+					for (int i = 0; i < ids.size(); i++) {
+						args[i + 1] = ids.get(i);
+					}
+					return jdbcTemplate.update(String.format(grant ? GRANT : REVOKE, placeholders(ids.size())), args);
+				}));
+				matched += ids.size();
+				changed += rows;
+				if (rows > 0) {
+					events.publishEvent(new RolesChangedEvent(role, new HashSet<>(ids), new HashSet<>(chunk)));
+				}
+			}
+		}
+		return new RoleChangeReport(role, grant, distinct.size(), matched, changed);
+	}
+
+	private static String placeholders(int count) {
+		return String.join(",", Collections.nCopies(count, "?"));
+	}
+}
@@ -0,0 +1,42 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+
+public class RoleChangeReport {
+	private final ERole role;
+	private final boolean granted;
+	private final int requested;
+	private final int matched;
+	private final int changed;
+
+	public RoleChangeReport(ERole role, boolean granted, int requested, int matched, int changed) {
+		this.role = role;
+		this.granted = granted;
+		this.requested = requested;
+		this.matched = matched;
+		this.changed = changed;
+	}
+
+	public ERole getRole() {
+		return role;
+	}
+
+	public boolean isGranted() {
+		return granted;
+	}
+
+	/* noms distincts reçus */
+	public int getRequested() {
+		return requested;
+	}
+
+	/* comptes existants parmi eux */
+	public int getMatched() {
+		return matched;
+	}
+
+	/* lignes internaut_role insérées ou supprimées */
+	public int getChanged() {
+		return changed;
+	}
+}
@@ -0,0 +1,86 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.model.Role;
+
+/*
+ Représentation des rôles d'un utilisateur sous forme de masque de bits (un bit par ERole).
+
+ ERole étant un petit enum fermé, toutes les combinaisons possibles (2^n) sont calculées
+ une seule fois au chargement de la classe : chaque masque correspond à une liste immuable
+ et partagée de GrantedAuthority, ainsi qu'à la liste des noms de rôles renvoyée au client.
+ Aucune autorité n'est donc allouée par requête, et tester un rôle revient à un ET binaire.
+ */
+public final class RoleMask {
+
+	private static final ERole[] ROLES = ERole.values();
+
+	private static final GrantedAuthority[] AUTHORITIES = new GrantedAuthority[ROLES.length];
+
+	private static final List<GrantedAuthority>[] AUTHORITY_LISTS;
+
+	private static final List<String>[] NAME_LISTS;
+
+	static {
+		for (ERole role : ROLES) {
+			AUTHORITIES[role.ordinal()] = new SimpleGrantedAuthority(role.name());
+		}
+
+		int combinations = 1 << ROLES.length;
+		@SuppressWarnings("unchecked")
+		List<GrantedAuthority>[] authorityLists = new List[combinations];
+		@SuppressWarnings("unchecked")
+		List<String>[] nameLists = new List[combinations];
+
+		for (int mask = 0; mask < combinations; mask++) {
+			List<GrantedAuthority> authorities = new ArrayList<>(Integer.bitCount(mask));
+			List<String> names = new ArrayList<>(Integer.bitCount(mask));
+			for (ERole role : ROLES) {
+				if ((mask & role.bit()) != 0) {
+					authorities.add(AUTHORITIES[role.ordinal()]);
+					names.add(role.name());
+				}
+			}
+			authorityLists[mask] = Collections.unmodifiableList(authorities);
+			nameLists[mask] = Collections.unmodifiableList(names);
+		}
+
+		AUTHORITY_LISTS = authorityLists;
+		NAME_LISTS = nameLists;
+	}
+
+	private RoleMask() {
+	}
+
+	public static int of(Collection<Role> roles) {
+		int mask = 0;
+		for (Role role : roles) {
+			mask |= role.getName().bit();
+		}
+		return mask;
+	}
+
+	public static boolean has(int mask, ERole role) {
+		return (mask & role.bit()) != 0;
+	}
+
+	public static GrantedAuthority authority(ERole role) {
+		return AUTHORITIES[role.ordinal()];
+	}
+
+	public static List<GrantedAuthority> authorities(int mask) {
+		return AUTHORITY_LISTS[mask];
+	}
+
+	public static List<String> names(int mask) {
+		return NAME_LISTS[mask];
+	}
+}
@@ -0,0 +1,38 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.Set;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+
+/*
+ Publié après la validation d'un changement de rôles en masse (RoleAssignments), pour que
+ les principals gardés en mémoire (sessions opaques, lectures sur réplica) soient rafraîchis.
+ Avec des shards, les id ne sont uniques que par shard : un abonné qui invalide par id
+ peut en toucher un peu trop, jamais trop peu.
+ */
+public class RolesChangedEvent {
+
+	private final ERole role;
+
+	private final Set<Long> userIds;
+
+	private final Set<String> usernames;
+
+	public RolesChangedEvent(ERole role, Set<Long> userIds, Set<String> usernames) {
+		this.role = role;
+		this.userIds = userIds;
+		this.usernames = usernames;
+	}
+
+	public ERole getRole() {
+		return role;
+	}
+
+	public Set<Long> getUserIds() {
+		return userIds;
+	}
+
+	public Set<String> getUsernames() {
+		return usernames;
+	}
+}
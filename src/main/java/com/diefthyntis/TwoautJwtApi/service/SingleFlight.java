@@ -0,0 +1,79 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ Regroupement des appels concurrents sur une même clé (single-flight) : le premier thread
+ exécute le travail, les suivants attendent son résultat au plus timeoutMs.
+
+ L'entrée est retirée dès que le travail se termine : rien n'est mis en cache, et un échec est
+ transmis tel quel à tous les threads en attente. Un thread qui attend plus de timeoutMs
+ (base bloquée) abandonne avec une CompletionException, sans relancer le travail.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final long timeoutMs;
+
+	public SingleFlight(long timeoutMs) {
+		this.timeoutMs = timeoutMs;
+	}
+
+	public V run(K key, Supplier<V> work) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> pending = inFlight.putIfAbsent(key, flight);
+		if (pending != null) {
+			return await(pending);
+		}
+
+		try {
+			V value = work.get();
+			flight.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	int size() {
+		return inFlight.size();
+	}
+
+	/*
+	 Nombre (estimé) de threads qui attendent le travail en cours sur key.
+	 */
+	int waiting(K key) {
+		CompletableFuture<V> flight = inFlight.get(key);
+		return flight == null ? 0 : flight.getNumberOfDependents();
+	}
+
+	private V await(CompletableFuture<V> pending) {
+		try {
+			return pending.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		} catch (TimeoutException e) {
+			throw new CompletionException("Concurrent lookup still running after " + timeoutMs + " ms", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (cause instanceof Error error) {
+				throw error;
+			}
+			throw new CompletionException(cause);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+/*
+ Utilisateur inconnu, levé à chaque tentative avec un nom inexistant.
+
+ Le message est constant (pas de concaténation du nom) et la pile d'appels n'est pas capturée :
+ un afflux de noms inventés ne coûte ni allocation de trace ni copie de chaîne.
+ Reste une UsernameNotFoundException pour que DaoAuthenticationProvider continue d'appliquer
+ sa comparaison factice avec un hash BCrypt (mitigateAgainstTimingAttack), ce qui aligne
+ la durée d'un échec sur celle d'une vraie vérification de mot de passe.
+ */
+public class UnknownUserException extends UsernameNotFoundException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UnknownUserException() {
+		super("User Not Found");
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
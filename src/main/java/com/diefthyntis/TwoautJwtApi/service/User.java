@@ -3,18 +3,18 @@ package com.diefthyntis.TwoautJwtApi.service;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.diefthyntis.TwoautJwtApi.model.ERole;
 import com.diefthyntis.TwoautJwtApi.model.Internaut;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /*
- Look at the code, you can notice that we convert Set<Role> into List<GrantedAuthority>. 
- It is important to work with  Spring Security and Authentication object later.
+ Look at the code, you can notice that we convert Set<Role> into a role bitmask (see RoleMask). 
+ getAuthorities() hands out the shared, pre-built List<GrantedAuthority> for that mask, 
+ which is what Spring Security and the Authentication object work with later.
 
 As I have said before, we need UserDetailsService for getting UserDetails object. 
 You can look at UserDetailsService interface that has only one method:
@@ -35,33 +35,61 @@ public class User implements UserDetails {
   @JsonIgnore
   private String password;
 
-  private Collection<? extends GrantedAuthority> authorities;
+  private int roleMask;
 
-  public User(Long id, String username, String email, String password,
-      Collection<? extends GrantedAuthority> authorities) {
+  @JsonIgnore
+  private String totpSecret;
+
+  public User(Long id, String username, String email, String password, int roleMask) {
+    this(id, username, email, password, roleMask, null);
+  }
+
+  public User(Long id, String username, String email, String password, int roleMask, String totpSecret) {
     this.id = id;
     this.username = username;
     this.email = email;
     this.password = password;
-    this.authorities = authorities;
+    this.roleMask = roleMask;
+    this.totpSecret = totpSecret;
   }
 
   public static User build(Internaut internaut) {
-    List<GrantedAuthority> authorities = internaut.getRoles().stream()
-        .map(role -> new SimpleGrantedAuthority(role.getName().name()))
-        .collect(Collectors.toList());
-
     return new User(
     		internaut.getId(), 
     		internaut.getName(), 
     		internaut.getEmail(),
     		internaut.getPassword(), 
-        authorities);
+    		RoleMask.of(internaut.getRoles()),
+    		internaut.getTotpSecret());
   }
 
   @Override
   public Collection<? extends GrantedAuthority> getAuthorities() {
-    return authorities;
+    return RoleMask.authorities(roleMask);
+  }
+
+  public int getRoleMask() {
+    return roleMask;
+  }
+
+  public List<String> getRoleNames() {
+    return RoleMask.names(roleMask);
+  }
+
+  public boolean hasRole(ERole role) {
+    return RoleMask.has(roleMask, role);
+  }
+
+  /*
+   Secret TOTP de l'utilisateur (null sans second facteur). Il n'est connu que d'un User
+   chargé depuis la base : un principal restauré depuis SessionTable ne le porte pas.
+   */
+  public String getTotpSecret() {
+    return totpSecret;
+  }
+
+  public boolean isMfaEnabled() {
+    return totpSecret != null;
   }
 
   public Long getId() {
@@ -111,4 +139,9 @@ public class User implements UserDetails {
     User user = (User) o;
     return Objects.equals(id, user.id);
   }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id);
+  }
 }
\ No newline at end of file
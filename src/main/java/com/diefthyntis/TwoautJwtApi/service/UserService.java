@@ -1,36 +1,151 @@
 package com.diefthyntis.TwoautJwtApi.service;
 
+import java.util.Objects;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.diefthyntis.TwoautJwtApi.model.Internaut;
 import com.diefthyntis.TwoautJwtApi.repository.InternautRepository;
+import com.diefthyntis.TwoautJwtApi.repository.ShardedInternauts;
 
 /*
  * In the code, we get full custom User object using UserRepository, 
  * then we build a UserDetails object using static build() method.
  */
 
+/*
+ * Regroupement des recherches concurrentes (single-flight) :
+ * quand le même token arrive sur plusieurs threads à la fois (compte de service,
+ * rafale après un déploiement), un seul thread interroge la base. Les autres
+ * attendent son résultat dans inFlight (SingleFlight) au lieu d'envoyer N requêtes
+ * identiques, au plus opaque.app.lookup.timeoutMs. L'entrée est retirée dès que la
+ * recherche se termine : rien n'est mis en cache, et un échec est transmis tel quel
+ * à tous les threads en attente.
+ * La transaction n'est ouverte que par le thread qui interroge la base, les autres
+ * n'occupent donc pas de connexion pendant leur attente.
+ *
+ * Cette transaction est en lecture seule (servie par le réplica s'il est configuré),
+ * sauf pour un utilisateur inscrit il y a quelques instants (RecentWrites) :
+ * il est relu sur le primaire pour ne pas subir le retard de réplication.
+ * Si la table internaut est répartie sur plusieurs shards, la transaction est ouverte
+ * sur le shard de l'utilisateur (ShardedInternauts.forUser) ; pendant un rééquilibrage, un nom
+ * n'est déclaré inconnu (et retenu dans unknownUsers) qu'absent de l'ancien et du nouveau shard.
+ *
+ * Les noms inconnus sont retenus quelques secondes (unknownUsers) : une rafale de
+ * noms inventés (énumération de comptes) ne touche plus la base, et l'exception levée
+ * est sans pile (UnknownUserException). Une inscription retire aussitôt le nom (registered),
+ * et une recherche commencée avant l'inscription ne peut plus le remettre (ExpiringNames.ticket).
+ *
+ * Un compte verrouillé après trop d'échecs (LoginAttempts) est refusé par
+ * loadForPasswordCheck avant toute recherche, avec la même UnknownUserException qu'un nom
+ * inconnu : DaoAuthenticationProvider calcule alors le même hash BCrypt factice, et la durée
+ * de la réponse ne distingue pas un compte verrouillé d'un compte inexistant.
+ * Les autres chargements (token déjà émis, introspection) ignorent le verrouillage.
+ */
 @Service
 public class UserService implements UserDetailsService {
   @Autowired
   InternautRepository internautRepository;
 
-  
+  @Autowired
+  ShardedInternauts internauts;
+
+  @Autowired
+  RecentWrites recentWrites;
+
+  @Autowired
+  LoginAttempts loginAttempts;
+
+  private final SingleFlight<String, User> inFlight;
+
+  private final TransactionTemplate readOnlyTransaction;
+
+  private final TransactionTemplate primaryTransaction;
+
+  private final ExpiringNames unknownUsers;
+
+  public UserService(PlatformTransactionManager transactionManager,
+      @Value("${opaque.app.unknownUser.ttlMs:10000}") long unknownUserTtlMs,
+      @Value("${opaque.app.unknownUser.maxEntries:100000}") int unknownUserMaxEntries,
+      @Value("${opaque.app.lookup.timeoutMs:5000}") long lookupTimeoutMs) {
+    this.inFlight = new SingleFlight<>(lookupTimeoutMs);
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.primaryTransaction = new TransactionTemplate(transactionManager);
+    this.unknownUsers = new ExpiringNames(unknownUserTtlMs, unknownUserMaxEntries);
+  }
+
+  /*
+   * Chargement utilisé par DaoAuthenticationProvider pour /signin : le verrouillage est
+   * vérifié pour chaque nom, connu ou non, avant la recherche.
+   */
+  public UserDetails loadForPasswordCheck(String name) throws UsernameNotFoundException {
+    if (loginAttempts.isLocked(name)) {
+      throw new UnknownUserException();
+    }
+    return loadUserByUsername(name);
+  }
+
   // le nom loadUserByUsername est imposé par Spring Security
   //le nom findByName est libre pour le développeur
   @Override
-  @Transactional
   public UserDetails loadUserByUsername(String name) throws UsernameNotFoundException {
-    Internaut internaut = internautRepository.findByName(name)
-        .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + name));
+    if (unknownUsers.contains(name)) {
+      throw new UnknownUserException();
+    }
+
+    return inFlight.run(name, () -> {
+      long ticket = unknownUsers.ticket(name);
+      try {
+        TransactionTemplate transaction = recentWrites.isFresh(name) ? primaryTransaction : readOnlyTransaction;
+        User user = internauts.forUser(name, () -> transaction.execute(status -> load(name)), Objects::isNull);
+        if (user == null) {
+          throw new UnknownUserException();
+        }
+        return user;
+      } catch (UnknownUserException e) {
+        /* refusé si le nom a été inscrit pendant la recherche (registered) */
+        unknownUsers.add(name, ticket);
+        throw e;
+      }
+    });
+  }
+
+  private User load(String name) {
+    return internautRepository.findByName(name).map(User::build).orElse(null);
+  }
+
+  /*
+   * À appeler après l'enregistrement d'un nouvel utilisateur.
+   */
+  public void registered(String name) {
+    /* dans cet ordre : une recherche qui suit le remove lit déjà le primaire */
+    recentWrites.mark(name);
+    unknownUsers.remove(name);
+  }
+
+  /*
+   * À appeler après la modification d'un utilisateur existant (secret TOTP...) :
+   * comme après une inscription, il est relu quelques instants sur le primaire.
+   */
+  public void modified(String name) {
+    recentWrites.mark(name);
+  }
 
-    return Internaut.build(internaut);
+  /*
+   * Rôles modifiés en masse (RoleAssignments) : ces comptes sont relus sur le primaire
+   * le temps que le réplica rattrape le changement.
+   */
+  @EventListener
+  public void rolesChanged(RolesChangedEvent event) {
+    event.getUsernames().forEach(recentWrites::mark);
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.service.RoleAssignments;
+
+/*
+ Listage paginé, export NDJSON et changements de rôles en masse, réservés à ROLE_ADMIN.
+ L'inscription publique ne donne jamais ce rôle : il est attribué ici comme le ferait AdminBootstrap.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("embedded")
+class AdminListingTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private RoleAssignments roleAssignments;
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void adminPagesAndExportsAccounts() {
+		for (int i = 0; i < 3; i++) {
+			restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", "listed" + i, "email", "listed" + i + "@example.org", "password", "secret-listed"),
+					Map.class);
+		}
+		restTemplate.postForEntity("/api/auth/signup", Map.of("username", "root", "email", "root@example.org",
+				"password", "secret-root"), Map.class);
+		roleAssignments.grant(ERole.ROLE_ADMIN, List.of("root"));
+
+		HttpHeaders admin = bearer("root", "secret-root");
+		HttpHeaders user = bearer("listed0", "secret-listed");
+
+		ResponseEntity<String> forbidden = restTemplate.exchange("/api/admin/internauts", HttpMethod.GET,
+				new HttpEntity<>(user), String.class);
+		assertThat(forbidden.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+		ResponseEntity<Map> first = restTemplate.exchange("/api/admin/internauts?limit=2", HttpMethod.GET,
+				new HttpEntity<>(admin), Map.class);
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		List<Map> items = (List<Map>) first.getBody().get("items");
+		assertThat(items).hasSize(2);
+		Number afterId = (Number) first.getBody().get("nextAfterId");
+		assertThat(afterId.longValue()).isEqualTo(((Number) items.get(1).get("id")).longValue());
+
+		ResponseEntity<Map> second = restTemplate.exchange("/api/admin/internauts?limit=2&afterId=" + afterId,
+				HttpMethod.GET, new HttpEntity<>(admin), Map.class);
+		List<Map> next = (List<Map>) second.getBody().get("items");
+		assertThat(((Number) next.get(0).get("id")).longValue()).isGreaterThan(afterId.longValue());
+
+		ResponseEntity<String> export = restTemplate.exchange("/api/admin/internauts/export", HttpMethod.GET,
+				new HttpEntity<>(admin), String.class);
+		assertThat(export.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(export.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+		assertThat(export.getBody().lines())
+				.anyMatch(line -> line.contains("\"username\":\"root\"") && line.contains("\"ROLE_ADMIN\""))
+				.allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void adminGrantsAndRevokesRolesInBulk() {
+		for (String name : List.of("cohort1", "cohort2")) {
+			restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", name, "email", name + "@example.org", "password", "secret-cohort"), Map.class);
+		}
+		restTemplate.postForEntity("/api/auth/signup", Map.of("username", "warden", "email", "warden@example.org",
+				"password", "secret-warden"), Map.class);
+		roleAssignments.grant(ERole.ROLE_ADMIN, List.of("warden"));
+		HttpHeaders admin = bearer("warden", "secret-warden");
+		Map<String, Object> change = Map.of("role", "ROLE_MODERATOR", "usernames",
+				List.of("cohort1", "cohort2", "cohort2", "nobody"));
+
+		ResponseEntity<Map> granted = restTemplate.exchange("/api/admin/roles/grant", HttpMethod.POST,
+				new HttpEntity<>(change, admin), Map.class);
+		assertThat(granted.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(granted.getBody()).containsEntry("requested", 3).containsEntry("matched", 2)
+				.containsEntry("changed", 2);
+
+		ResponseEntity<Map> again = restTemplate.exchange("/api/admin/roles/grant", HttpMethod.POST,
+				new HttpEntity<>(change, admin), Map.class);
+		assertThat(again.getBody()).containsEntry("changed", 0);
+
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "cohort1", "password", "secret-cohort"), Map.class);
+		assertThat((Iterable<String>) signin.getBody().get("roles")).contains("ROLE_MODERATOR");
+
+		ResponseEntity<Map> revoked = restTemplate.exchange("/api/admin/roles/revoke", HttpMethod.POST,
+				new HttpEntity<>(change, admin), Map.class);
+		assertThat(revoked.getBody()).containsEntry("changed", 2);
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void publicSignupNeverGrantsElevatedRoles() {
+		ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup", Map.of("username", "climber",
+				"email", "climber@example.org", "password", "secret-climber", "role", Set.of("admin", "mod")), Map.class);
+		assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "climber", "password", "secret-climber"), Map.class);
+		assertThat((Iterable<String>) signin.getBody().get("roles")).containsExactly("ROLE_USER");
+
+		ResponseEntity<String> export = restTemplate.exchange("/api/admin/internauts/export", HttpMethod.GET,
+				new HttpEntity<>(bearer("climber", "secret-climber")), String.class);
+		assertThat(export.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private HttpHeaders bearer(String username, String password) {
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", username, "password", password), Map.class);
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth((String) signin.getBody().get("accessToken"));
+		return headers;
+	}
+}
@@ -0,0 +1,79 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.service.RoleAssignments;
+
+/*
+ Introspection par lot des tokens (/api/gateway/introspect), réservée aux comptes ROLE_GATEWAY.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("embedded")
+class GatehouseTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private RoleAssignments roleAssignments;
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void introspectsTokensInBatch() {
+		restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "gateway", "email", "gateway@example.org", "password", "secret-gateway"), Map.class);
+		restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "walker", "email", "walker@example.org", "password", "secret-walker"), Map.class);
+		roleAssignments.grant(ERole.ROLE_GATEWAY, List.of("gateway"));
+		String gatewayToken = accessToken("gateway", "secret-gateway");
+		String token = accessToken("walker", "secret-walker");
+		Map<String, Object> batch = Map.of("tokens", List.of(token, "not-a-token", token));
+
+		/* introspection réservée aux comptes de passerelle (RFC 7662) */
+		assertThat(restTemplate.postForEntity("/api/gateway/introspect", batch, String.class).getStatusCode())
+				.isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(restTemplate.exchange("/api/gateway/introspect", HttpMethod.POST,
+				new HttpEntity<>(batch, bearer(token)), String.class).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+		ResponseEntity<Map> introspection = restTemplate.exchange("/api/gateway/introspect", HttpMethod.POST,
+				new HttpEntity<>(batch, bearer(gatewayToken)), Map.class);
+		assertThat(introspection.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(introspection.getHeaders().getCacheControl()).contains("max-age=").contains("private");
+
+		List<Map> results = (List<Map>) introspection.getBody().get("results");
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0)).containsEntry("active", true).containsEntry("sub", "walker")
+				.containsEntry("roles", List.of("ROLE_USER")).containsKey("exp");
+		assertThat(results.get(1)).containsOnlyKeys("active").containsEntry("active", false);
+		assertThat(results.get(2)).containsEntry("active", true);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private String accessToken(String username, String password) {
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", username, "password", password), Map.class);
+		return (String) signin.getBody().get("accessToken");
+	}
+
+	private static HttpHeaders bearer(String token) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth(token);
+		return headers;
+	}
+}
@@ -0,0 +1,99 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.diefthyntis.TwoautJwtApi.model.OutboxEvent;
+import com.diefthyntis.TwoautJwtApi.service.MemoryOutboxSink;
+import com.diefthyntis.TwoautJwtApi.service.OutboxRelay;
+
+/*
+ Chaque inscription laisse un événement dans outbox_event, relayé vers le destinataire mémoire
+ après une panne du destinataire ; un événement toujours refusé est mis au rebut sans retenir
+ les autres.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1;MODE=MySQL", "opaque.app.outbox.sink=memory",
+		"opaque.app.outbox.pollMs=50", "opaque.app.outbox.retryMs=50", "opaque.app.outbox.maxAttempts=3" })
+@ActiveProfiles("embedded")
+class OutboxTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private MemoryOutboxSink sink;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/* contexte et destinataire partagés par les tests, dans un ordre quelconque */
+	@BeforeEach
+	void resetSink() {
+		sink.reset();
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void relaysSignupEventsWithRetry() throws InterruptedException {
+		sink.failNext(2);
+		for (String name : List.of("relayed1", "relayed2")) {
+			ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", name, "email", name + "@example.org", "password", "secret-relayed"), Map.class);
+			assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (relayed().size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+
+		List<OutboxEvent> events = relayed();
+		assertThat(events).extracting(OutboxEvent::getAggregateKey).containsExactlyInAnyOrder("relayed1", "relayed2");
+		assertThat(events).allMatch(event -> event.getType().equals("InternautRegistered"))
+				.allMatch(event -> event.getPayload().contains("\"username\":\"" + event.getAggregateKey() + "\""))
+				.allMatch(event -> event.getPayload().contains("ROLE_USER"));
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void setsAsideARefusedEventWithoutHoldingBackTheOthers() throws InterruptedException {
+		sink.refuse("poisoned");
+		for (String name : List.of("poisoned", "healthy")) {
+			ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", name, "email", name + "@example.org", "password", "secret-" + name), Map.class);
+			assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline && jdbcTemplate.queryForObject(
+				"select count(*) from outbox_event where aggregate_key = 'poisoned' and next_attempt_at = ?", Integer.class,
+				OutboxRelay.DEAD) == 0) {
+			Thread.sleep(20);
+		}
+
+		assertThat(jdbcTemplate.queryForObject("select attempts from outbox_event where aggregate_key = 'poisoned'",
+				Integer.class)).isEqualTo(3);
+		assertThat(sink.getEvents()).extracting(OutboxEvent::getAggregateKey).contains("healthy")
+				.doesNotContain("poisoned");
+		assertThat(jdbcTemplate.queryForObject("select count(*) from outbox_event where aggregate_key = 'healthy'",
+				Integer.class)).isZero();
+	}
+
+	private List<OutboxEvent> relayed() {
+		return sink.getEvents().stream().filter(event -> event.getAggregateKey().startsWith("relayed")).toList();
+	}
+}
@@ -0,0 +1,84 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.diefthyntis.TwoautJwtApi.service.RecentWrites;
+
+/*
+ Routage lecture / écriture sur deux bases H2 : le réplica ne reçoit jamais les écritures
+ du primaire. Un utilisateur tout juste inscrit est relu sur le primaire, puis sur le
+ réplica (où il n'existe pas) une fois sa fenêtre de lecture après écriture oubliée.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({ "embedded", "replica" })
+class ReplicaRoutingTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private RecentWrites recentWrites;
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void readsFollowTheWriteThenGoToTheReplica() {
+		ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "bob", "email", "bob@example.org", "password", "secret-bob"), Map.class);
+		assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		Map<String, String> credential = Map.of("username", "bob", "password", "secret-bob");
+		assertThat(restTemplate.postForEntity("/api/auth/signin", credential, Map.class).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+
+		recentWrites.forget("bob");
+		assertThat(restTemplate.postForEntity("/api/auth/signin", credential, String.class).getStatusCode())
+				.isEqualTo(HttpStatus.UNAUTHORIZED);
+	}
+
+	/*
+	 Les vérifications existsBy* de l'inscription passent par le réplica ; l'écriture qui suit
+	 doit malgré tout partir sur le primaire, et la connexion doit ensuite fonctionner.
+	 */
+	@Test
+	@SuppressWarnings("rawtypes")
+	void signupWritesToThePrimaryAfterReplicaReads() throws SQLException {
+		ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "carol", "email", "carol@example.org", "password", "secret-carol"), Map.class);
+		assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		assertThat(countOn("primary", "carol")).isEqualTo(1);
+		assertThat(countOn("replica", "carol")).isZero();
+
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "carol", "password", "secret-carol"), Map.class);
+		assertThat(signin.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(signin.getBody().get("username")).isEqualTo("carol");
+	}
+
+	private static int countOn(String database, String name) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + database, "sa", "");
+				PreparedStatement statement = connection.prepareStatement("select count(*) from internaut where name = ?")) {
+			statement.setString(1, name);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getInt(1);
+			}
+		}
+	}
+}
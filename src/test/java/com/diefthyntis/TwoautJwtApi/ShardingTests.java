@@ -0,0 +1,221 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.diefthyntis.TwoautJwtApi.repository.InternautRepository;
+import com.diefthyntis.TwoautJwtApi.repository.OutboxRepository;
+import com.diefthyntis.TwoautJwtApi.repository.ShardIdRanges;
+import com.diefthyntis.TwoautJwtApi.repository.ShardRebalancer;
+import com.diefthyntis.TwoautJwtApi.repository.ShardRing;
+import com.diefthyntis.TwoautJwtApi.repository.ShardRouting;
+import com.diefthyntis.TwoautJwtApi.repository.ShardedInternauts;
+
+/*
+ Répartition de internaut sur trois bases H2 : chaque utilisateur inscrit doit se trouver
+ sur le shard désigné par l'anneau, et l'unicité des emails vaut entre shards.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({ "embedded", "sharded" })
+class ShardingTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private ShardRing ring;
+
+	@Autowired
+	private ShardIdRanges idRanges;
+
+	@Autowired
+	private ShardRebalancer rebalancer;
+
+	@Autowired
+	private InternautRepository internautRepository;
+
+	@Autowired
+	private OutboxRepository outboxRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void usersLandOnTheirShard() throws SQLException {
+		Set<Integer> usedShards = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			String name = "user" + i;
+			ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", name, "email", name + "@example.org", "password", "secret-" + name), Map.class);
+			assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+			int shard = ring.shardFor(name);
+			usedShards.add(shard);
+			for (int other = 0; other < ring.getShardCount(); other++) {
+				assertThat(countOn(other, name)).isEqualTo(other == shard ? 1 : 0);
+			}
+		}
+		assertThat(usedShards).hasSizeGreaterThan(1);
+
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			String name = "user" + i;
+			ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+					Map.of("username", name, "password", "secret-" + name), Map.class);
+			long id = ((Number) signin.getBody().get("id")).longValue();
+			assertThat(id).isGreaterThan(idRanges.baseOf(ring.shardFor(name)));
+			ids.add(id);
+		}
+		assertThat(ids).as("ids are unique across shards").hasSize(12);
+
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "user7", "password", "secret-user7"), Map.class);
+		assertThat(signin.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat((Iterable<String>) signin.getBody().get("roles")).containsExactly("ROLE_USER");
+
+		ResponseEntity<Map> duplicateEmail = restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "intruder", "email", "user3@example.org", "password", "secret-intruder"), Map.class);
+		assertThat(duplicateEmail.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/*
+	 Une ligne mal placée est déplacée vers son shard en gardant son id ; un homonyme déjà présent
+	 sur la cible n'est pas pris pour une copie, et une ligne dont l'id dépasse la plage de la
+	 cible reste sur son shard : dans les deux cas la ligne d'origine est conservée.
+	 */
+	@Test
+	void rebalancingMovesMisplacedRowsButNeverAHomonym() throws SQLException {
+		String misplaced = nameOnShardAbove(0, "wanderer");
+		String homonym = "twin";
+		String climber = nameOnShardBelow(ring.getShardCount() - 1, "climber");
+		int misplacedShard = ring.shardFor(misplaced) - 1;
+		int homonymShard = (ring.shardFor(homonym) + 1) % ring.getShardCount();
+		int climberShard = ring.getShardCount() - 1;
+		long misplacedId = insertOn(misplacedShard, misplaced, "wanderer@example.org");
+		insertOn(homonymShard, homonym, "twin-old@example.org");
+		insertOn(ring.shardFor(homonym), homonym, "twin-new@example.org");
+		insertOn(climberShard, climber, "climber@example.org");
+
+		rebalancer.rebalance();
+
+		assertThat(countOn(misplacedShard, misplaced)).isZero();
+		assertThat(countOn(ring.shardFor(misplaced), misplaced)).isEqualTo(1);
+		assertThat(idOn(ring.shardFor(misplaced), misplaced)).isEqualTo(misplacedId);
+		assertThat(countOn(homonymShard, homonym)).isEqualTo(1);
+		assertThat(countOn(ring.shardFor(homonym), homonym)).isEqualTo(1);
+		assertThat(countOn(climberShard, climber)).isEqualTo(1);
+		assertThat(countOn(ring.shardFor(climber), climber)).isZero();
+	}
+
+	/*
+	 Pendant un rééquilibrage (ici de 2 à 3 shards), un nom pas encore déplacé est trouvé sur son
+	 shard de l'ancien anneau ; l'anneau ne déplace des noms que vers le shard ajouté.
+	 */
+	@Test
+	void namesNotMovedYetAreFoundOnThePreviousRing() throws SQLException {
+		ShardRing growing = new ShardRing(3, 64, 2);
+		for (int i = 0; i < 200; i++) {
+			int previous = growing.previousShardFor("name" + i);
+			assertThat(previous == -1 || growing.shardFor("name" + i) == 2).isTrue();
+		}
+
+		String name = "straggler";
+		for (int i = 0; growing.previousShardFor(name) < 0; i++) {
+			name = "straggler" + i;
+		}
+		insertOn(growing.previousShardFor(name), name, name + "@example.org");
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("ring", growing));
+		ShardedInternauts internauts = new ShardedInternauts(internautRepository, outboxRepository,
+				beans.getBeanProvider(ShardRing.class), jdbcTemplate, transactionManager);
+
+		assertThat(internauts.findByName(name)).isPresent();
+		assertThat(internauts.findByName("nobody-at-all")).isEmpty();
+	}
+
+	@Test
+	void shardsAndReplicaCannotBeCombined() {
+		new ApplicationContextRunner().withUserConfiguration(ShardRouting.class)
+				.withPropertyValues("opaque.app.shards.urls=jdbc:h2:mem:lonely",
+						"opaque.app.datasource.replica.url=jdbc:h2:mem:replica")
+				.run(context -> assertThat(context).hasFailed().getFailure()
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessage("opaque.app.shards.urls and opaque.app.datasource.replica.url cannot be combined"));
+	}
+
+	private String nameOnShardAbove(int shard, String prefix) {
+		String name = prefix;
+		for (int i = 0; ring.shardFor(name) <= shard; i++) {
+			name = prefix + i;
+		}
+		return name;
+	}
+
+	private String nameOnShardBelow(int shard, String prefix) {
+		String name = prefix;
+		for (int i = 0; ring.shardFor(name) >= shard; i++) {
+			name = prefix + i;
+		}
+		return name;
+	}
+
+	private static long insertOn(int shard, String name, String email) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:shard" + shard, "sa", "");
+				PreparedStatement statement = connection.prepareStatement(
+						"insert into internaut (name, email, password) values (?, ?, 'hash')", new String[] { "id" })) {
+			statement.setString(1, name);
+			statement.setString(2, email);
+			statement.executeUpdate();
+			try (ResultSet keys = statement.getGeneratedKeys()) {
+				keys.next();
+				return keys.getLong(1);
+			}
+		}
+	}
+
+	private static long idOn(int shard, String name) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:shard" + shard, "sa", "");
+				PreparedStatement statement = connection.prepareStatement("select id from internaut where name = ?")) {
+			statement.setString(1, name);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+	}
+
+	private static int countOn(int shard, String name) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:shard" + shard, "sa", "");
+				PreparedStatement statement = connection.prepareStatement("select count(*) from internaut where name = ?")) {
+			statement.setString(1, name);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getInt(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+/*
+ Parcours signup -> signin -> requête authentifiée contre une base H2 embarquée.
+ Exécuté aussi dans l'image native avec mvn -PnativeTest test.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("embedded")
+class SigninTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void signupThenSignin() {
+		ResponseEntity<Map> signup = restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "alice", "email", "alice@example.org", "password", "secret-alice"), Map.class);
+		assertThat(signup.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "alice", "password", "secret-alice"), Map.class);
+		assertThat(signin.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(signin.getBody().get("username")).isEqualTo("alice");
+		assertThat((Iterable<String>) signin.getBody().get("roles")).containsExactly("ROLE_USER");
+
+		String token = (String) signin.getBody().get("accessToken");
+		assertThat(token).isNotBlank();
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth(token);
+		ResponseEntity<String> authenticated = restTemplate.exchange("/api/nowhere", HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+		assertThat(authenticated.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+		ResponseEntity<String> anonymous = restTemplate.getForEntity("/api/nowhere", String.class);
+		assertThat(anonymous.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+	}
+}
@@ -0,0 +1,325 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.diefthyntis.TwoautJwtApi.service.RoleAssignments;
+
+/*
+ Test d'endurance : signin, requêtes authentifiées (Watchdog) et introspection en continu pendant
+ soak.minutes minutes contre H2, en échantillonnant le tas après GC, les classes chargées, les threads
+ et les octets alloués par requête. Échoue si l'une de ces courbes dérive au-delà de son seuil.
+
+ Les octets alloués sont déduits des notifications de GC (tas occupé avant chaque collection moins
+ tas occupé après la précédente) et du tas occupé au moment de l'échantillon : contrairement aux
+ compteurs par thread, la mesure n'oublie pas les threads terminés (pool Tomcat, clients HTTP).
+
+ Ignoré sans -Dsoak.minutes ; lancer avec mvn -Psoak test (60 minutes par défaut)
+ ou mvn -Psoak test -Dsoak.minutes=240.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:soak;DB_CLOSE_DELAY=-1;MODE=MySQL" })
+@ActiveProfiles("embedded")
+@EnabledIfSystemProperty(named = "soak.minutes", matches = "\\d+")
+class SoakTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(SoakTests.class);
+
+	private static final int USERS = 32;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private RoleAssignments roleAssignments;
+
+	private volatile HttpHeaders gateway;
+
+	private final long minutes = Long.getLong("soak.minutes", 60);
+	private final long sampleSeconds = Long.getLong("soak.sampleSeconds", 30);
+	private final int workers = Integer.getInteger("soak.workers", 4);
+	/* seuils, exprimés par heure de test */
+	private final long maxHeapGrowthPerHour = Long.getLong("soak.maxHeapGrowthPerHour", 16L << 20);
+	private final long maxClassGrowthPerHour = Long.getLong("soak.maxClassGrowthPerHour", 50);
+	private final long maxThreadGrowthPerHour = Long.getLong("soak.maxThreadGrowthPerHour", 4);
+	/* dérive relative des octets alloués par requête entre le premier et le dernier quart */
+	private final double maxAllocationDrift = Double.parseDouble(System.getProperty("soak.maxAllocationDrift", "0.25"));
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private volatile boolean running = true;
+
+	@Test
+	void sustainedTrafficDoesNotLeak() throws Exception {
+		for (int i = 0; i < USERS; i++) {
+			restTemplate.postForEntity("/api/auth/signup",
+					Map.of("username", "soak" + i, "email", "soak" + i + "@example.org", "password", "secret-soak" + i),
+					Map.class);
+		}
+		restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "soakgw", "email", "soakgw@example.org", "password", "secret-soakgw"), Map.class);
+		roleAssignments.grant(ERole.ROLE_GATEWAY, List.of("soakgw"));
+		gateway = new HttpHeaders();
+		gateway.setBearerAuth((String) restTemplate.postForEntity("/api/auth/signin",
+				Map.of("username", "soakgw", "password", "secret-soakgw"), Map.class).getBody().get("accessToken"));
+
+		Allocations allocations = new Allocations();
+		ExecutorService traffic = Executors.newFixedThreadPool(workers);
+		for (int w = 0; w < workers; w++) {
+			int worker = w;
+			traffic.execute(() -> drive(worker));
+		}
+
+		List<Sample> samples = new ArrayList<>();
+		long end = System.nanoTime() + TimeUnit.MINUTES.toNanos(minutes);
+		try {
+			while (System.nanoTime() < end) {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(sampleSeconds));
+				Sample sample = Sample.take(requests.get(), allocations);
+				samples.add(sample);
+				logger.info("soak heapAfterGc={} classes={} threads={} allocated={} requests={} failures={}",
+						sample.heapAfterGc, sample.classes, sample.threads, sample.allocated, sample.requests, failures.get());
+			}
+		} finally {
+			running = false;
+			traffic.shutdown();
+			traffic.awaitTermination(30, TimeUnit.SECONDS);
+			allocations.close();
+		}
+
+		/* le premier cinquième sert de chauffe : JIT, caches, pools de connexions */
+		List<Sample> steady = samples.subList(samples.size() / 5, samples.size());
+		assertThat(steady).as("not enough samples, raise soak.minutes or lower soak.sampleSeconds").hasSizeGreaterThan(4);
+
+		assertThat(perHour(slope(steady, s -> s.heapAfterGc))).as("heap after GC growth, bytes/hour")
+				.isLessThan(maxHeapGrowthPerHour);
+		assertThat(perHour(slope(steady, s -> s.classes))).as("loaded class growth, classes/hour")
+				.isLessThan(maxClassGrowthPerHour);
+		assertThat(perHour(slope(steady, s -> s.threads))).as("live thread growth, threads/hour")
+				.isLessThan(maxThreadGrowthPerHour);
+
+		int quarter = steady.size() / 4;
+		double first = allocationPerRequest(steady.get(0), steady.get(quarter));
+		double last = allocationPerRequest(steady.get(steady.size() - 1 - quarter), steady.get(steady.size() - 1));
+		assertThat(last).as("allocated bytes per request, first quarter %.0f", first)
+				.isLessThan(first * (1 + maxAllocationDrift));
+
+		assertThat(failures.get()).as("failed requests").isLessThan(Math.max(1, requests.get() / 1000));
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void drive(int worker) {
+		long n = worker;
+		while (running) {
+			String name = "soak" + (n++ % USERS);
+			try {
+				ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+						Map.of("username", name, "password", "secret-" + name), Map.class);
+				count(signin.getStatusCode() == HttpStatus.OK);
+				if (signin.getStatusCode() != HttpStatus.OK) {
+					continue;
+				}
+				String token = (String) signin.getBody().get("accessToken");
+
+				HttpHeaders headers = new HttpHeaders();
+				headers.setBearerAuth(token);
+				HttpEntity<Void> authenticated = new HttpEntity<>(headers);
+				for (int i = 0; i < 8; i++) {
+					ResponseEntity<String> response = restTemplate.exchange("/api/nowhere", HttpMethod.GET, authenticated,
+							String.class);
+					count(response.getStatusCode() == HttpStatus.NOT_FOUND);
+				}
+
+				ResponseEntity<Map> introspection = restTemplate.exchange("/api/gateway/introspect", HttpMethod.POST,
+						new HttpEntity<>(Map.of("tokens", List.of(token, "not-a-token")), gateway), Map.class);
+				count(introspection.getStatusCode() == HttpStatus.OK);
+			} catch (RuntimeException e) {
+				count(false);
+			}
+		}
+	}
+
+	private void count(boolean ok) {
+		requests.incrementAndGet();
+		/* 503 du LoadShedder compris : le test mesure les fuites, pas le débit */
+		if (!ok) {
+			failures.incrementAndGet();
+		}
+	}
+
+	private static double allocationPerRequest(Sample from, Sample to) {
+		return (double) (to.allocated - from.allocated) / Math.max(1, to.requests - from.requests);
+	}
+
+	private static double perHour(double slopePerNano) {
+		return slopePerNano * TimeUnit.HOURS.toNanos(1);
+	}
+
+	/*
+	 Pente des moindres carrés de la mesure en fonction du temps (unités par nanoseconde).
+	 */
+	private static double slope(List<Sample> samples, ToLongFunction<Sample> metric) {
+		double meanX = 0;
+		double meanY = 0;
+		for (Sample sample : samples) {
+			meanX += sample.nanos;
+			meanY += metric.applyAsLong(sample);
+		}
+		meanX /= samples.size();
+		meanY /= samples.size();
+		double covariance = 0;
+		double variance = 0;
+		for (Sample sample : samples) {
+			double dx = sample.nanos - meanX;
+			covariance += dx * (metric.applyAsLong(sample) - meanY);
+			variance += dx * dx;
+		}
+		return variance == 0 ? 0 : covariance / variance;
+	}
+
+	private static final class Sample {
+		final long nanos;
+		final long heapAfterGc;
+		final long classes;
+		final long threads;
+		final long allocated;
+		final long requests;
+
+		private Sample(long nanos, long heapAfterGc, long classes, long threads, long allocated, long requests) {
+			this.nanos = nanos;
+			this.heapAfterGc = heapAfterGc;
+			this.classes = classes;
+			this.threads = threads;
+			this.allocated = allocated;
+			this.requests = requests;
+		}
+
+		static Sample take(long requests, Allocations allocations) {
+			/* lu avant le GC complet, qui ne fait que libérer */
+			long allocated = allocations.total();
+			/* un GC complet juste avant la lecture pour que getCollectionUsage soit à jour */
+			System.gc();
+			long heap = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				MemoryUsage usage = pool.getCollectionUsage();
+				if (pool.getType() == MemoryType.HEAP && usage != null) {
+					heap += usage.getUsed();
+				}
+			}
+			return new Sample(System.nanoTime(), heap, ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(),
+					ManagementFactory.getThreadMXBean().getThreadCount(), allocated, requests);
+		}
+	}
+
+	/*
+	 Octets alloués dans le tas depuis la création, tous threads confondus : à chaque GC, le tas
+	 occupé avant la collection moins celui laissé par la précédente ; plus, à la lecture, ce qui
+	 a été occupé depuis la dernière collection.
+	 */
+	private static final class Allocations implements NotificationListener, AutoCloseable {
+		private final Set<String> heapPools = new HashSet<>();
+		private final List<NotificationEmitter> collectors = new ArrayList<>();
+		private long collected;
+		private long usedAfterLastGc;
+
+		Allocations() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					heapPools.add(pool.getName());
+				}
+			}
+			usedAfterLastGc = heapUsed();
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				if (collector instanceof NotificationEmitter emitter) {
+					emitter.addNotificationListener(this, null, null);
+					collectors.add(emitter);
+				}
+			}
+		}
+
+		@Override
+		public synchronized void handleNotification(Notification notification, Object handback) {
+			if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+				return;
+			}
+			GcInfo gc = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+			long before = sum(gc.getMemoryUsageBeforeGc());
+			collected += Math.max(0, before - usedAfterLastGc);
+			usedAfterLastGc = sum(gc.getMemoryUsageAfterGc());
+		}
+
+		synchronized long total() {
+			return collected + Math.max(0, heapUsed() - usedAfterLastGc);
+		}
+
+		@Override
+		public void close() {
+			for (NotificationEmitter emitter : collectors) {
+				try {
+					emitter.removeNotificationListener(this);
+				} catch (ListenerNotFoundException e) {
+					// déjà retiré
+				}
+			}
+		}
+
+		private long sum(Map<String, MemoryUsage> usages) {
+			long used = 0;
+			for (Map.Entry<String, MemoryUsage> usage : usages.entrySet()) {
+				if (heapPools.contains(usage.getKey())) {
+					used += usage.getValue().getUsed();
+				}
+			}
+			return used;
+		}
+
+		private long heapUsed() {
+			long used = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					used += pool.getUsage().getUsed();
+				}
+			}
+			return used;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.diefthyntis.TwoautJwtApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/*
+ Un /signin portant un en-tête traceparent doit produire, dans la même trace, les spans
+ de la vérification BCrypt et de la requête InternautRepository.findByName ;
+ le nom contextuel de l'observation opaque.repository est exporté en kebab-case
+ (internaut-repository.find-by-name).
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "management.tracing.sampling.probability=1.0")
+@ActiveProfiles("embedded")
+@AutoConfigureObservability
+class TracingTests {
+
+	private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+	@TestConfiguration
+	static class InMemoryExport {
+		@Bean
+		InMemorySpanExporter inMemorySpanExporter() {
+			return InMemorySpanExporter.create();
+		}
+	}
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private InMemorySpanExporter exporter;
+
+	@Autowired
+	private SdkTracerProvider tracerProvider;
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void signinStagesJoinTheIncomingTrace() {
+		restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "carol", "email", "carol@example.org", "password", "secret-carol"), Map.class);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01");
+		ResponseEntity<Map> signin = restTemplate.postForEntity("/api/auth/signin",
+				new HttpEntity<>(Map.of("username", "carol", "password", "secret-carol"), headers), Map.class);
+		assertThat(signin.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+		List<String> names = exporter.getFinishedSpanItems().stream()
+				.filter(span -> TRACE_ID.equals(span.getTraceId()))
+				.map(SpanData::getName)
+				.toList();
+		assertThat(names).anyMatch(name -> name.equalsIgnoreCase("password matches"));
+		assertThat(names).anyMatch(name -> name.equals("internaut-repository.find-by-name"));
+	}
+}
@@ -0,0 +1,58 @@
+package com.diefthyntis.TwoautJwtApi.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AuditJournalTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void appendsRollsAndReadsBackInOrder() throws Exception {
+		/* 10 enregistrements par segment : 25 enregistrements occupent 3 segments */
+		AuditJournal journal = new AuditJournal(directory, AuditJournal.HEADER_BYTES + 10 * AuditJournal.RECORD_BYTES,
+				64, 86_400_000L, 1_000);
+		journal.start();
+		for (int i = 0; i < 25; i++) {
+			assertThat(journal.record(i % 2 == 0 ? AuditType.SIGNIN_SUCCESS : AuditType.SIGNIN_FAILURE, i,
+					"user" + i)).isTrue();
+		}
+		journal.stop();
+
+		List<Path> segments = AuditReader.segments(List.of(directory));
+		assertThat(segments).hasSize(3);
+		List<AuditReader.Entry> entries = new ArrayList<>();
+		for (Path segment : segments) {
+			AuditReader.read(segment, entries::add);
+		}
+		assertThat(entries).hasSize(25);
+		for (int i = 0; i < 25; i++) {
+			assertThat(entries.get(i).userId).isEqualTo(i);
+			assertThat(entries.get(i).subject).isEqualTo("user" + i);
+			assertThat(entries.get(i).type).isEqualTo(i % 2 == 0 ? AuditType.SIGNIN_SUCCESS : AuditType.SIGNIN_FAILURE);
+		}
+		assertThat(journal.getDropped()).isZero();
+	}
+
+	@Test
+	void truncatesSubjectsBetweenCharacters() throws Exception {
+		AuditJournal journal = new AuditJournal(directory, AuditJournal.HEADER_BYTES + 10 * AuditJournal.RECORD_BYTES,
+				64, 86_400_000L, 1_000);
+		journal.start();
+		/* 1 + 2 x 30 octets : la limite de MAX_SUBJECT tombe au milieu d'un é */
+		journal.record(AuditType.SIGNIN_FAILURE, 0, "a" + "é".repeat(30));
+		journal.stop();
+
+		List<AuditReader.Entry> entries = new ArrayList<>();
+		AuditReader.read(AuditReader.segments(List.of(directory)).get(0), entries::add);
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).subject).isEqualTo("a" + "é".repeat(22));
+	}
+}
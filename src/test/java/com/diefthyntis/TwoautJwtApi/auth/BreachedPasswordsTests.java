@@ -0,0 +1,50 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BreachedPasswordsTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void findsEveryListedPasswordAcrossChunks() throws Exception {
+		MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			String hex = HexFormat.of().withUpperCase()
+					.formatHex(sha1.digest(("password" + i).getBytes(StandardCharsets.UTF_8)));
+			lines.add(hex + ":" + (i + 1));
+		}
+		lines.add("not a hash");
+		Path input = Files.write(directory.resolve("pwned.txt"), lines);
+		Path filter = directory.resolve("breached.bloom");
+
+		/* tranches de 1 Kio : le filtre de 5 000 entrées en occupe plusieurs */
+		assertThat(BreachFilterBuilder.build(input, filter, 0.001, 10)).isEqualTo(5_000);
+		BreachedPasswords breached = new BreachedPasswords(filter, 10);
+
+		assertThat(breached.getEntries()).isEqualTo(5_000);
+		for (int i = 0; i < 5_000; i++) {
+			assertThat(breached.isBreached("password" + i)).isTrue();
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 5_000; i++) {
+			if (breached.isBreached("correct horse battery staple " + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(50);
+	}
+}
@@ -0,0 +1,43 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitTests {
+
+	@Test
+	void shedsAboveTheLimit() {
+		ConcurrencyLimit limit = new ConcurrencyLimit("auth", 2, 1, 10, 1_000);
+
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isFalse();
+		assertThat(limit.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void backsOffOnSlowRequestsAndGrowsBackWhenFast() {
+		ConcurrencyLimit limit = new ConcurrencyLimit("api", 10, 2, 20, 100);
+
+		limit.tryAcquire();
+		limit.release(System.nanoTime() - 1_000_000_000L, false);
+		assertThat(limit.getLimit()).isEqualTo(9);
+
+		/* un second échantillon lent dans la même période ne réduit pas encore la limite */
+		limit.tryAcquire();
+		limit.release(System.nanoTime() - 1_000_000_000L, false);
+		assertThat(limit.getLimit()).isEqualTo(9);
+
+		for (int round = 0; round < 100; round++) {
+			for (int i = 0; i < 9; i++) {
+				limit.tryAcquire();
+			}
+			for (int i = 0; i < 9; i++) {
+				limit.release(System.nanoTime(), false);
+			}
+		}
+		assertThat(limit.getLimit()).isGreaterThan(9).isLessThanOrEqualTo(20);
+		assertThat(limit.getInFlight()).isZero();
+	}
+}
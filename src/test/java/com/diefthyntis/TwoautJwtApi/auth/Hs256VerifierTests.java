@@ -0,0 +1,57 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.Key;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+class Hs256VerifierTests {
+
+	private static final String FALLBACK = "fallback";
+
+	private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+
+	private final Hs256Verifier verifier = new Hs256Verifier(key.getEncoded());
+
+	@Test
+	void acceptsOwnTokensWithoutFallback() {
+		String token = token("alice", 60_000);
+
+		assertThat(verifier.resolveSubject(token, t -> FALLBACK)).isEqualTo("alice");
+	}
+
+	@Test
+	void rejectsTamperedAndExpiredTokens() {
+		String token = token("alice", 60_000);
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+
+		assertThat(verifier.resolveSubject(tampered, t -> FALLBACK)).isNull();
+		assertThat(verifier.resolveSubject(token("alice", -60_000), t -> FALLBACK)).isNull();
+	}
+
+	@Test
+	void delegatesUnusualTokens() {
+		long now = System.currentTimeMillis();
+		String withExtraClaim = Jwts.builder().setSubject("alice").claim("mfa", true)
+				.setIssuedAt(new Date(now)).setExpiration(new Date(now + 60_000))
+				.signWith(key, SignatureAlgorithm.HS256).compact();
+		String withTypHeader = Jwts.builder().setHeaderParam("typ", "JWT").setSubject("alice")
+				.setExpiration(new Date(now + 60_000)).signWith(key, SignatureAlgorithm.HS256).compact();
+
+		assertThat(verifier.resolveSubject(withExtraClaim, t -> FALLBACK)).isEqualTo(FALLBACK);
+		assertThat(verifier.resolveSubject(withTypHeader, t -> FALLBACK)).isEqualTo(FALLBACK);
+		assertThat(verifier.resolveSubject("not-a-token", t -> FALLBACK)).isEqualTo(FALLBACK);
+	}
+
+	private String token(String subject, long validityMs) {
+		long now = System.currentTimeMillis();
+		return Jwts.builder().setSubject(subject).setIssuedAt(new Date(now))
+				.setExpiration(new Date(now + validityMs)).signWith(key, SignatureAlgorithm.HS256).compact();
+	}
+}
@@ -0,0 +1,145 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.diefthyntis.TwoautJwtApi.model.ERole;
+import com.diefthyntis.TwoautJwtApi.service.User;
+
+class SessionTableTests {
+
+	private static final String KEY = "session-table-test-key";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void issueResolveRevokeAndRestore() throws Exception {
+		Path snapshot = directory.resolve("sessions.bin");
+		SessionTable table = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		table.start();
+
+		User dave = new User(42L, "dave", "dave@example.org", "hash", ERole.ROLE_USER.bit() | ERole.ROLE_ADMIN.bit());
+		String kept = table.issue(dave);
+		String revoked = table.issue(dave);
+		assertThat(kept).hasSize(SessionTable.HANDLE_LENGTH);
+
+		User resolved = table.resolve(kept);
+		assertThat(resolved.getId()).isEqualTo(42L);
+		assertThat(resolved.getUsername()).isEqualTo("dave");
+		assertThat(resolved.hasRole(ERole.ROLE_ADMIN)).isTrue();
+
+		assertThat(table.revoke(revoked)).isTrue();
+		assertThat(table.resolve(revoked)).isNull();
+		assertThat(table.resolve("0123456789abcdef0123456789abcdef")).isNull();
+		table.stop();
+
+		SessionTable restarted = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		restarted.start();
+		assertThat(restarted.resolve(kept).getUsername()).isEqualTo("dave");
+		assertThat(restarted.resolve(revoked)).isNull();
+		assertThat(restarted.size()).isEqualTo(1);
+		restarted.stop();
+	}
+
+	@Test
+	void expiredSessionsAreSwept() throws Exception {
+		SessionTable table = new SessionTable(1024, 4, 0, 60_000, "", KEY);
+		table.start();
+		String handle = table.issue(new User(1L, "erin", null, null, ERole.ROLE_USER.bit()));
+		assertThat(table.resolve(handle)).isNull();
+		table.sweep();
+		assertThat(table.size()).isZero();
+		table.stop();
+	}
+
+	@Test
+	void snapshotHoldsNoHandleAndIsOwnerOnly() throws Exception {
+		Path snapshot = directory.resolve("sessions.bin");
+		SessionTable table = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		table.start();
+		String handle = table.issue(new User(7L, "frank", null, null, ERole.ROLE_USER.bit()));
+		table.stop();
+
+		byte[] raw = HexFormat.of().parseHex(handle);
+		byte[] saved = Files.readAllBytes(snapshot);
+		for (int i = 0; i + raw.length <= saved.length; i++) {
+			assertThat(ByteBuffer.wrap(saved, i, raw.length)).isNotEqualTo(ByteBuffer.wrap(raw));
+		}
+		if (snapshot.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(snapshot))).isEqualTo("rw-------");
+		}
+
+		/* une autre clé ne retrouve pas la session */
+		SessionTable rekeyed = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), "another-key");
+		rekeyed.start();
+		assertThat(rekeyed.resolve(handle)).isNull();
+		rekeyed.stop();
+	}
+
+	@Test
+	void restoreSkipsARecordWithAnInvalidNameLength() throws Exception {
+		Path snapshot = directory.resolve("sessions.bin");
+		SessionTable table = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		table.start();
+		String handle = table.issue(new User(8L, "grace", null, null, ERole.ROLE_USER.bit()));
+		table.stop();
+
+		/* en-tête de 8 octets, longueur du nom à l'offset 40 de l'enregistrement */
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(2).putShort(0, Short.MAX_VALUE), 8 + 40);
+		}
+
+		SessionTable restarted = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		restarted.start();
+		assertThat(restarted.size()).isZero();
+		assertThat(restarted.resolve(handle)).isNull();
+		restarted.stop();
+	}
+
+	@Test
+	void fullTableRefusesNewSessionsAndRestoreSkipsTheExtra() throws Exception {
+		Path snapshot = directory.resolve("sessions.bin");
+		SessionTable table = new SessionTable(1024, 4, 60_000, 60_000, snapshot.toString(), KEY);
+		table.start();
+		User henry = new User(9L, "henry", null, null, ERole.ROLE_USER.bit());
+		for (int i = 0; i < 200; i++) {
+			assertThat(table.issue(henry)).isNotNull();
+		}
+		table.stop();
+
+		/* capacité réduite au redémarrage : les sessions en trop sont ignorées, le démarrage réussit */
+		SessionTable smaller = new SessionTable(16, 1, 60_000, 60_000, snapshot.toString(), KEY);
+		smaller.start();
+		assertThat(smaller.size()).isPositive().isLessThan(200);
+		assertThat(smaller.issue(henry)).isNull();
+		smaller.stop();
+	}
+
+	@Test
+	void resolveReusesThePrincipalOfTheSameSession() throws Exception {
+		SessionTable table = new SessionTable(1024, 4, 60_000, 60_000, "", KEY);
+		table.start();
+		String first = table.issue(new User(10L, "iris", null, null, ERole.ROLE_USER.bit()));
+		String second = table.issue(new User(11L, "jack", null, null, ERole.ROLE_USER.bit()));
+
+		User resolved = table.resolve(first);
+		assertThat(table.resolve(first)).isSameAs(resolved);
+		assertThat(table.resolve(second).getUsername()).isEqualTo("jack");
+		assertThat(table.resolve(first).getUsername()).isEqualTo("iris");
+
+		table.revoke(first);
+		assertThat(table.resolve(first)).isNull();
+		table.stop();
+	}
+}
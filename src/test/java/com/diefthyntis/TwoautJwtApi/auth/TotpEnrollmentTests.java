@@ -0,0 +1,80 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+/*
+ Un secret proposé par /totp/enroll n'est actif qu'après un code valide (/totp/activate),
+ et le remplacer exige le code du facteur actuel.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:totp;DB_CLOSE_DELAY=-1;MODE=MySQL" })
+@ActiveProfiles("embedded")
+class TotpEnrollmentTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void secretBecomesActiveOnlyAfterAValidCode() {
+		restTemplate.postForEntity("/api/auth/signup",
+				Map.of("username", "erin", "email", "erin@example.org", "password", "secret-erin"), Map.class);
+		HttpHeaders erin = bearer((String) signin().getBody().get("accessToken"));
+
+		ResponseEntity<Map> enrollment = restTemplate.exchange("/api/auth/totp/enroll", HttpMethod.POST,
+				new HttpEntity<>(erin), Map.class);
+		assertThat(enrollment.getStatusCode()).isEqualTo(HttpStatus.OK);
+		byte[] key = TotpGuard.decode((String) enrollment.getBody().get("secret"));
+
+		/* secret en attente : la connexion ne demande pas encore de code */
+		assertThat(signin().getBody()).containsKey("accessToken");
+
+		assertThat(activate(erin, "000000").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(activate(erin, code(key, 0)).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(signin().getBody()).containsKey("mfaToken").doesNotContainKey("accessToken");
+
+		/* facteur actif : un token seul ne suffit plus pour en proposer un autre */
+		assertThat(restTemplate.exchange("/api/auth/totp/enroll", HttpMethod.POST, new HttpEntity<>(erin), String.class)
+				.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(restTemplate.exchange("/api/auth/totp/enroll", HttpMethod.POST,
+				new HttpEntity<>(Map.of("code", code(key, 1)), erin), String.class).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private ResponseEntity<Map> signin() {
+		return restTemplate.postForEntity("/api/auth/signin", Map.of("username", "erin", "password", "secret-erin"),
+				Map.class);
+	}
+
+	private ResponseEntity<String> activate(HttpHeaders headers, String code) {
+		return restTemplate.exchange("/api/auth/totp/activate", HttpMethod.POST,
+				new HttpEntity<>(Map.of("code", code), headers), String.class);
+	}
+
+	/* code du pas courant décalé de offset (un pas différent évite le refus pour rejeu) */
+	private static String code(byte[] key, int offset) {
+		long step = System.currentTimeMillis() / 1000 / 30 + offset;
+		return String.format("%06d", TotpGuard.generate(key, step));
+	}
+
+	private static HttpHeaders bearer(String token) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth(token);
+		return headers;
+	}
+}
@@ -0,0 +1,35 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class TotpGuardTests {
+
+	/* secret de l'annexe B de la RFC 6238 ("12345678901234567890") */
+	private static final String SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+	@Test
+	void matchesRfc6238Vectors() {
+		byte[] key = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+
+		assertThat(TotpGuard.decode(SECRET)).isEqualTo(key);
+		assertThat(TotpGuard.encode(key)).isEqualTo(SECRET);
+		assertThat(TotpGuard.generate(key, 59 / TotpGuard.STEP_SECONDS)).isEqualTo(287082);
+		assertThat(TotpGuard.generate(key, 1111111109L / TotpGuard.STEP_SECONDS)).isEqualTo(81804);
+	}
+
+	@Test
+	void acceptsEachCodeOnce() {
+		TotpGuard guard = new TotpGuard(1024, "TwoautJwtApi");
+		String code = String.format("%06d",
+				TotpGuard.generate(TotpGuard.decode(SECRET), System.currentTimeMillis() / 1000 / TotpGuard.STEP_SECONDS));
+
+		assertThat(guard.verify(7L, SECRET, code)).isTrue();
+		assertThat(guard.verify(7L, SECRET, code)).isFalse();
+		assertThat(guard.verify(8L, SECRET, code)).isTrue();
+		assertThat(guard.verify(7L, SECRET, "12345")).isFalse();
+	}
+}
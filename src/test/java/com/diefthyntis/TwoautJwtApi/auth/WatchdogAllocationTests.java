@@ -0,0 +1,91 @@
+package com.diefthyntis.TwoautJwtApi.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+
+import jakarta.servlet.FilterChain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.diefthyntis.TwoautJwtApi.service.User;
+import com.diefthyntis.TwoautJwtApi.service.UserService;
+
+import io.micrometer.observation.ObservationRegistry;
+
+/*
+ Octets alloués par requête dans Watchdog.doFilterInternal pour un JWT valide, mesurés sur le
+ thread courant (com.sun.management.ThreadMXBean), sans enregistrement JFR. Restent le token
+ extrait de l'en-tête, le parsing HS256, le sujet et l'Authentication (environ 600 octets),
+ plus l'observation quand le registre est actif (environ 1 300 octets en tout).
+ */
+class WatchdogAllocationTests {
+
+	private static final int WARMUP = 20_000;
+
+	private static final int MEASURED = 10_000;
+
+	private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+	};
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void staysWithinAllocationBudget() throws Exception {
+		assertThat(bytesPerRequest(ObservationRegistry.NOOP)).isLessThan(1_024);
+	}
+
+	@Test
+	void observedRequestStaysWithinAllocationBudget() throws Exception {
+		ObservationRegistry registry = ObservationRegistry.create();
+		registry.observationConfig().observationHandler(context -> true);
+		assertThat(bytesPerRequest(registry)).isLessThan(2_048);
+	}
+
+	private long bytesPerRequest(ObservationRegistry registry) throws Exception {
+		User user = new User(1L, "alice", "alice@example.org", "", 1);
+		Toolbox toolbox = new Toolbox();
+		ReflectionTestUtils.setField(toolbox, "jwtSecret",
+				"======================BezKoder=Spring===========================");
+		ReflectionTestUtils.setField(toolbox, "jwtExpirationMs", 60_000);
+		toolbox.init();
+		String jwt = toolbox.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+		Watchdog watchdog = new Watchdog();
+		ReflectionTestUtils.setField(watchdog, "toolbox", toolbox);
+		ReflectionTestUtils.setField(watchdog, "userDetailsService", new UserService(null, 1, 1, 1) {
+			@Override
+			public UserDetails loadUserByUsername(String name) {
+				return user;
+			}
+		});
+		ReflectionTestUtils.setField(watchdog, "observationRegistry", registry);
+
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Authorization", "Bearer " + jwt);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		for (int i = 0; i < WARMUP; i++) {
+			watchdog.doFilterInternal(request, response, NO_OP_CHAIN);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < MEASURED; i++) {
+			watchdog.doFilterInternal(request, response, NO_OP_CHAIN);
+		}
+		long perRequest = (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED;
+
+		assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isSameAs(user);
+		return perRequest;
+	}
+}
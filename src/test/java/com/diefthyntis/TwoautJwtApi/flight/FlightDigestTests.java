@@ -0,0 +1,106 @@
+package com.diefthyntis.TwoautJwtApi.flight;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+
+class FlightDigestTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void mergedPausesAndPerThreadWaits() {
+		FlightDigest.Intervals pauses = new FlightDigest.Intervals();
+		pauses.add(50, 60);
+		pauses.add(10, 20);
+		pauses.add(15, 30);
+		pauses.merge();
+		assertThat(pauses.overlaps(0, 10)).isFalse();
+		assertThat(pauses.overlaps(25, 40)).isTrue();
+		assertThat(pauses.overlaps(30, 50)).isFalse();
+		assertThat(pauses.overlaps(59, 100)).isTrue();
+		assertThat(pauses.overlaps(60, 100)).isFalse();
+
+		FlightDigest.Intervals waits = new FlightDigest.Intervals();
+		waits.add(40, 90);
+		waits.add(10, 15);
+		waits.add(45, 50);
+		waits.sortByStart();
+		assertThat(waits.containsOneWithin(0, 20)).isTrue();
+		assertThat(waits.containsOneWithin(12, 20)).isFalse();
+		/* [40, 90] déborde, mais [45, 50] est compris */
+		assertThat(waits.containsOneWithin(40, 60)).isTrue();
+		assertThat(waits.containsOneWithin(46, 100)).isFalse();
+	}
+
+	@Test
+	void digestsASmallRecording() throws Exception {
+		Path file = directory.resolve("digest.jfr");
+		Object monitor = new Object();
+		try (Recording recording = new Recording()) {
+			recording.enable(TokenCheckEvent.class);
+			recording.enable("jdk.GCPhasePause");
+			recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO);
+			recording.start();
+
+			TokenCheckEvent plain = check("PLAIN");
+			plain.commit();
+
+			TokenCheckEvent collected = check("GC");
+			System.gc();
+			collected.commit();
+
+			CountDownLatch held = new CountDownLatch(1);
+			Thread holder = new Thread(() -> {
+				synchronized (monitor) {
+					held.countDown();
+					sleep(50);
+				}
+			});
+			holder.start();
+			held.await();
+			TokenCheckEvent contended = check("LOCK");
+			synchronized (monitor) {
+				contended.commit();
+			}
+			holder.join();
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		FlightDigest.digest(file, new PrintStream(output, true, StandardCharsets.UTF_8));
+		String digest = output.toString(StandardCharsets.UTF_8);
+
+		assertThat(digest).containsPattern("TokenCheck\\[PLAIN\\]: count=1 .*duringGc=0 lockWaits=0");
+		assertThat(digest).containsPattern("TokenCheck\\[GC\\]: count=1 .*duringGc=1 lockWaits=0");
+		assertThat(digest).containsPattern("TokenCheck\\[LOCK\\]: count=1 .*lockWaits=1");
+	}
+
+	private static TokenCheckEvent check(String outcome) {
+		TokenCheckEvent event = new TokenCheckEvent();
+		event.outcome = outcome;
+		event.begin();
+		return event;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ExpiringNamesTests {
+
+	private final ExpiringNames names = new ExpiringNames(1_000, 4);
+
+	@Test
+	void expiresAfterTtl() {
+		names.put("alice", names.ticket("alice"), 0);
+		assertThat(names.contains("alice", 999)).isTrue();
+		assertThat(names.contains("alice", 1_000)).isFalse();
+	}
+
+	@Test
+	void evictsTheOldestWhenFull() {
+		ExpiringNames single = new ExpiringNames(1_000, 1);
+		single.put("alice", single.ticket("alice"), 0);
+		single.put("bob", single.ticket("bob"), 10);
+		assertThat(single.contains("alice", 20)).isFalse();
+		assertThat(single.contains("bob", 20)).isTrue();
+
+		/* ajouté de nouveau, un nom repasse en queue et prolonge sa durée */
+		single.put("bob", single.ticket("bob"), 900);
+		assertThat(single.contains("bob", 1_500)).isTrue();
+	}
+
+	@Test
+	void staysBoundedUnderManyNames() {
+		for (int i = 0; i < 10_000; i++) {
+			names.put("spray" + i, names.ticket("spray" + i), i);
+		}
+		int retained = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (names.contains("spray" + i, 10_000)) {
+				retained++;
+			}
+		}
+		assertThat(retained).isLessThanOrEqualTo(4);
+		assertThat(names.contains("spray9999", 10_000)).isTrue();
+	}
+
+	@Test
+	void aLookupStartedBeforeRemoveCannotAddTheNameBack() {
+		long ticket = names.ticket("carol");
+		/* inscription de carol pendant la recherche */
+		names.remove("carol");
+		assertThat(names.put("carol", ticket, 0)).isFalse();
+		assertThat(names.contains("carol", 1)).isFalse();
+
+		/* une recherche commencée après l'inscription retient le nom normalement */
+		assertThat(names.put("carol", names.ticket("carol"), 0)).isTrue();
+		assertThat(names.contains("carol", 1)).isTrue();
+	}
+}
@@ -0,0 +1,57 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LoginAttemptsTests {
+
+	private final LoginAttempts attempts = new LoginAttempts(3, 1_000, 5_000, 4, 8);
+
+	@Test
+	void locksAfterThresholdWithinWindowThenExpires() {
+		assertThat(attempts.failed("alice", 0)).isFalse();
+		assertThat(attempts.failed("alice", 100)).isFalse();
+		assertThat(attempts.isLocked("alice", 150)).isFalse();
+		assertThat(attempts.failed("alice", 200)).isTrue();
+		assertThat(attempts.isLocked("alice", 300)).isTrue();
+		assertThat(attempts.isLocked("bob", 300)).isFalse();
+
+		assertThat(attempts.isLocked("alice", 5_200)).isFalse();
+	}
+
+	@Test
+	void windowAndSuccessResetTheCount() {
+		attempts.failed("carol", 0);
+		attempts.failed("carol", 100);
+		/* fenêtre écoulée : le compte repart de zéro */
+		assertThat(attempts.failed("carol", 1_500)).isFalse();
+		assertThat(attempts.failed("carol", 1_600)).isFalse();
+		attempts.succeeded("carol");
+		assertThat(attempts.failed("carol", 1_700)).isFalse();
+		assertThat(attempts.isLocked("carol", 1_700)).isFalse();
+	}
+
+	@Test
+	void staysBoundedUnderManyNames() {
+		for (int i = 0; i < 10_000; i++) {
+			attempts.failed("spray" + i, 0);
+		}
+		attempts.failed("dave", 0);
+		attempts.failed("dave", 1);
+		assertThat(attempts.failed("dave", 2)).isTrue();
+		assertThat(attempts.isLocked("dave", 3)).isTrue();
+	}
+
+	@Test
+	void lockSurvivesASprayOfNames() {
+		attempts.failed("erin", 0);
+		attempts.failed("erin", 1);
+		assertThat(attempts.failed("erin", 2)).isTrue();
+		for (int i = 0; i < 10_000; i++) {
+			attempts.failed("spray" + i, 3);
+		}
+		assertThat(attempts.isLocked("erin", 4)).isTrue();
+		assertThat(attempts.isLocked("erin", 5_100)).isFalse();
+	}
+}
@@ -0,0 +1,125 @@
+package com.diefthyntis.TwoautJwtApi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTests {
+
+	private static final int WAITERS = 4;
+
+	private final ExecutorService threads = Executors.newCachedThreadPool();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		threads.shutdownNow();
+	}
+
+	@Test
+	void concurrentCallersShareOneCall() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<>(10_000);
+		List<Future<String>> results = start(flight, () -> {
+			calls.incrementAndGet();
+			awaitRelease();
+			return "alice#" + calls.get();
+		});
+
+		release.countDown();
+		for (Future<String> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("alice#1");
+		}
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(flight.size()).isZero();
+
+		/* rien n'est mis en cache : l'appel suivant refait le travail */
+		assertThat(flight.run("alice", () -> "alice#" + calls.incrementAndGet())).isEqualTo("alice#2");
+	}
+
+	@Test
+	void aFailureReachesEveryWaiterThenTheEntryIsGone() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<>(10_000);
+		IllegalStateException failure = new IllegalStateException("database down");
+		List<Future<String>> results = start(flight, () -> {
+			calls.incrementAndGet();
+			awaitRelease();
+			throw failure;
+		});
+
+		release.countDown();
+		for (Future<String> result : results) {
+			assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+					.hasCause(failure);
+		}
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(flight.size()).isZero();
+		assertThat(flight.run("alice", () -> "recovered")).isEqualTo("recovered");
+	}
+
+	@Test
+	void waitersGiveUpAfterTheTimeout() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<>(50);
+		Future<String> leader = threads.submit(() -> flight.run("alice", () -> {
+			awaitRelease();
+			return "late";
+		}));
+		awaitFlight(flight, 0);
+
+		assertThatThrownBy(() -> flight.run("alice", () -> "never")).isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(TimeoutException.class);
+
+		release.countDown();
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+		assertThat(flight.size()).isZero();
+	}
+
+	/*
+	 Lance un appelant qui exécute work (bloqué sur release), puis WAITERS appelants qui l'attendent.
+	 */
+	private List<Future<String>> start(SingleFlight<String, String> flight, Supplier<String> work)
+			throws InterruptedException {
+		List<Future<String>> results = new ArrayList<>();
+		results.add(threads.submit(() -> flight.run("alice", work)));
+		awaitFlight(flight, 0);
+		for (int i = 0; i < WAITERS; i++) {
+			results.add(threads.submit(() -> flight.run("alice", work)));
+		}
+		awaitFlight(flight, WAITERS);
+		return results;
+	}
+
+	private static void awaitFlight(SingleFlight<String, String> flight, int waiting) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while ((flight.size() == 0 || flight.waiting("alice") < waiting) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(flight.waiting("alice")).isGreaterThanOrEqualTo(waiting);
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
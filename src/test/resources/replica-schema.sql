@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS role (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(20));
+CREATE TABLE IF NOT EXISTS internaut (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(20) UNIQUE, email VARCHAR(50) UNIQUE, password VARCHAR(120), totp_secret VARCHAR(64), totp_pending VARCHAR(64));
+CREATE TABLE IF NOT EXISTS internaut_role (internaut_id BIGINT NOT NULL, role_id INT NOT NULL, PRIMARY KEY (internaut_id, role_id));
+CREATE TABLE IF NOT EXISTS outbox_event (id BIGINT AUTO_INCREMENT PRIMARY KEY, aggregate_key VARCHAR(20) NOT NULL, type VARCHAR(40) NOT NULL, payload VARCHAR(2000) NOT NULL, created_at BIGINT NOT NULL, attempts INT NOT NULL, next_attempt_at BIGINT NOT NULL);
+MERGE INTO role (id, name) KEY (id) VALUES (1, 'ROLE_USER'), (2, 'ROLE_MODERATOR'), (3, 'ROLE_ADMIN'), (4, 'ROLE_GATEWAY');